@@ -1,6 +1,5 @@
 package com.haarman.supertooltips;
 
-import android.animation.Animator;
 import android.animation.ObjectAnimator;
 import android.app.Activity;
 import android.graphics.Color;
@@ -25,7 +24,7 @@ public class MainActivity extends Activity implements View.OnClickListener, Tool
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        mToolTipFrameLayout = (ToolTipRelativeLayout) findViewById(R.id.activity_main_tooltipframelayout);
+        mToolTipFrameLayout = ToolTipRelativeLayout.attach(this);
 
         findViewById(R.id.activity_main_orangetv).setOnClickListener(this);
         findViewById(R.id.activity_main_purpletv).setOnClickListener(this);
@@ -60,35 +59,12 @@ public class MainActivity extends Activity implements View.OnClickListener, Tool
         mPurpleToolTipView.setOnToolTipViewClickedListener(new ToolTipView.OnToolTipViewClickedListener()
         {
             @Override
-            public void onToolTipViewClicked(ToolTipView toolTipView)
+            public void onToolTipViewClicked(final ToolTipView toolTipView)
             {
-                ObjectAnimator animator = ObjectAnimator.ofFloat(findViewById(R.id.activity_main_orangetv), View.TRANSLATION_X, 0, 100);
-                animator.addListener(new Animator.AnimatorListener()
-                {
-                    @Override
-                    public void onAnimationStart(Animator animation)
-                    {
-
-                    }
-
-                    @Override
-                    public void onAnimationEnd(Animator animation)
-                    {
-                        mOrangeToolTipView.applyToolTipPosition(false);
-                    }
+                MainActivity.this.onToolTipViewClicked(toolTipView);
 
-                    @Override
-                    public void onAnimationCancel(Animator animation)
-                    {
-
-                    }
-
-                    @Override
-                    public void onAnimationRepeat(Animator animation)
-                    {
-
-                    }
-                });
+                // The orange ToolTipView follows its anchor, so it moves along while the anchor is animated.
+                ObjectAnimator animator = ObjectAnimator.ofFloat(findViewById(R.id.activity_main_orangetv), View.TRANSLATION_X, 0, 100);
                 animator.start();
             }
         });
@@ -112,38 +88,16 @@ public class MainActivity extends Activity implements View.OnClickListener, Tool
                 .withShadowSize((int) (10 * dipscaling));
 
         mOrangeToolTipView = mToolTipFrameLayout.showToolTipForView(toolTip, findViewById(R.id.activity_main_orangetv));
+        mOrangeToolTipView.setFollowAnchorEnabled(true);
         mOrangeToolTipView.setOnToolTipViewClickedListener(new ToolTipView.OnToolTipViewClickedListener()
         {
             @Override
             public void onToolTipViewClicked(final ToolTipView toolTipView)
             {
-                ObjectAnimator animator = ObjectAnimator.ofFloat(findViewById(R.id.activity_main_orangetv), View.TRANSLATION_X, 0, 10);
-                animator.addListener(new Animator.AnimatorListener()
-                {
-                    @Override
-                    public void onAnimationStart(Animator animation)
-                    {
-
-                    }
-
-                    @Override
-                    public void onAnimationEnd(Animator animation)
-                    {
-                        toolTipView.applyToolTipPosition(true);
-                    }
-
-                    @Override
-                    public void onAnimationCancel(Animator animation)
-                    {
+                MainActivity.this.onToolTipViewClicked(toolTipView);
 
-                    }
-
-                    @Override
-                    public void onAnimationRepeat(Animator animation)
-                    {
-
-                    }
-                });
+                // The dismissed ToolTipView may be reused for another ToolTip, so only its anchor is touched here.
+                ObjectAnimator animator = ObjectAnimator.ofFloat(findViewById(R.id.activity_main_orangetv), View.TRANSLATION_X, 0, 10);
                 animator.start();
             }
         });
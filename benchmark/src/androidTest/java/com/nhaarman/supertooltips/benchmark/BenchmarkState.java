@@ -0,0 +1,141 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nhaarman.supertooltips.benchmark;
+
+import android.app.Instrumentation;
+import android.os.Bundle;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.util.Log;
+
+import java.util.Locale;
+
+/**
+ * Measures an operation that is run in a loop, after a warmup. Use it as follows:
+ * <pre>
+ * BenchmarkState state = new BenchmarkState("name");
+ * while (state.keepRunning()) {
+ *     // The operation.
+ * }
+ * </pre>
+ * Work that should not be measured, such as setting up the next iteration, goes between {@link #pauseTiming()}
+ * and {@link #resumeTiming()}. When the loop ends, the time and the allocations per operation are reported to the
+ * instrumentation, and logged.
+ */
+@SuppressWarnings("deprecation")
+final class BenchmarkState
+{
+
+    private static final String TAG = "ToolTipBenchmark";
+
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int MEASURED_ITERATIONS = 2000;
+
+    private final String mName;
+
+    private int mIteration;
+    private boolean mPaused;
+
+    private long mStartNanos;
+    private long mElapsedNanos;
+    private int mStartAllocCount;
+    private int mAllocCount;
+
+    BenchmarkState(final String name)
+    {
+        mName = name;
+    }
+
+    /**
+     * @return true while the operation should run another time.
+     */
+    boolean keepRunning()
+    {
+        if (mIteration == WARMUP_ITERATIONS) {
+            Debug.startAllocCounting();
+            start();
+        }
+        else if (mIteration == WARMUP_ITERATIONS + MEASURED_ITERATIONS) {
+            stop();
+            Debug.stopAllocCounting();
+            report();
+            return false;
+        }
+
+        mIteration++;
+        return true;
+    }
+
+    /**
+     * Stops measuring until {@link #resumeTiming()} is called.
+     */
+    void pauseTiming()
+    {
+        if (mPaused) {
+            throw new IllegalStateException("Timing is already paused.");
+        }
+        mPaused = true;
+        if (isMeasuring()) {
+            stop();
+        }
+    }
+
+    void resumeTiming()
+    {
+        if (!mPaused) {
+            throw new IllegalStateException("Timing is not paused.");
+        }
+        mPaused = false;
+        if (isMeasuring()) {
+            start();
+        }
+    }
+
+    private boolean isMeasuring()
+    {
+        return mIteration > WARMUP_ITERATIONS;
+    }
+
+    private void start()
+    {
+        Debug.resetThreadAllocCount();
+        mStartAllocCount = Debug.getThreadAllocCount();
+        mStartNanos = System.nanoTime();
+    }
+
+    private void stop()
+    {
+        mElapsedNanos += System.nanoTime() - mStartNanos;
+        mAllocCount += Debug.getThreadAllocCount() - mStartAllocCount;
+    }
+
+    private void report()
+    {
+        double nanosPerOp = (double) mElapsedNanos / MEASURED_ITERATIONS;
+        double opsPerSecond = 1e9 / nanosPerOp;
+        double allocsPerOp = (double) mAllocCount / MEASURED_ITERATIONS;
+        String result = String.format(Locale.US, "%s: %.0f ns/op, %.1f ops/s, %.2f allocs/op", mName, nanosPerOp, opsPerSecond, allocsPerOp);
+        Log.i(TAG, result);
+
+        Bundle status = new Bundle();
+        status.putString(Instrumentation.REPORT_KEY_STREAMRESULT, result + '\n');
+        status.putDouble(mName + "_ns_per_op", nanosPerOp);
+        status.putDouble(mName + "_ops_per_s", opsPerSecond);
+        status.putDouble(mName + "_allocs_per_op", allocsPerOp);
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, status);
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nhaarman.supertooltips.benchmark;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+
+import com.nhaarman.supertooltips.DownTriangleShapeView;
+import com.nhaarman.supertooltips.RoundedBackgroundView;
+import com.nhaarman.supertooltips.ToolTip;
+import com.nhaarman.supertooltips.ToolTipRelativeLayout;
+import com.nhaarman.supertooltips.ToolTipView;
+import com.nhaarman.supertooltips.UpTriangleShapeView;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Benchmarks the hot paths of a ToolTip: showing, positioning, drawing and dismissing. Every benchmark runs on the
+ * main thread, like the code it measures. Run with {@code ./gradlew :benchmark:connectedCheck}; the results are
+ * reported as ns/op, ops/s and allocs/op.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ToolTipBenchmark
+{
+
+    private static final int DRAW_WIDTH = 200;
+    private static final int DRAW_HEIGHT = 80;
+
+    @Rule
+    public final ActivityTestRule<BenchmarkActivity> mActivityRule = new ActivityTestRule<>(BenchmarkActivity.class);
+
+    @Test
+    public void showToolTipForView()
+    {
+        benchmarkShow("showToolTipForView", ToolTipRelativeLayout.RENDER_MODE_VIEWS, 0);
+    }
+
+    @Test
+    public void showToolTipForViewPooled()
+    {
+        benchmarkShow("showToolTipForViewPooled", ToolTipRelativeLayout.RENDER_MODE_VIEWS, 1);
+    }
+
+    @Test
+    public void showToolTipForViewFlat()
+    {
+        benchmarkShow("showToolTipForViewFlat", ToolTipRelativeLayout.RENDER_MODE_FLAT, 0);
+    }
+
+    @Test
+    public void applyToolTipPosition()
+    {
+        runOnMainSync(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ToolTipView toolTipView = getToolTipRelativeLayout().showToolTipForView(createToolTip(), getAnchorView());
+
+                BenchmarkState state = new BenchmarkState("applyToolTipPosition");
+                while (state.keepRunning()) {
+                    toolTipView.applyToolTipPosition(false);
+                }
+
+                toolTipView.remove();
+            }
+        });
+    }
+
+    @Test
+    public void remove()
+    {
+        runOnMainSync(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ToolTipRelativeLayout toolTipRelativeLayout = getToolTipRelativeLayout();
+                View anchorView = getAnchorView();
+                ToolTip toolTip = createToolTip();
+
+                BenchmarkState state = new BenchmarkState("remove");
+                while (state.keepRunning()) {
+                    state.pauseTiming();
+                    ToolTipView toolTipView = toolTipRelativeLayout.showToolTipForView(toolTip, anchorView);
+                    state.resumeTiming();
+
+                    toolTipView.remove();
+                }
+            }
+        });
+    }
+
+    @Test
+    public void drawRoundedBackgroundView()
+    {
+        RoundedBackgroundView view = new RoundedBackgroundView(InstrumentationRegistry.getTargetContext());
+        view.setColor(Color.WHITE);
+        view.setBorderColor(Color.BLACK);
+        view.setBorderWidth(2);
+        view.setRadius(12);
+        view.setShowBorder(true);
+        view.setShadow(6, Color.GRAY);
+        benchmarkDraw("drawRoundedBackgroundView", view);
+    }
+
+    @Test
+    public void drawUpTriangleShapeView()
+    {
+        UpTriangleShapeView view = new UpTriangleShapeView(InstrumentationRegistry.getTargetContext());
+        view.setColor(Color.WHITE);
+        view.setBorderColor(Color.BLACK);
+        view.setBorderWidth(2);
+        view.setShowBorder(true);
+        benchmarkDraw("drawUpTriangleShapeView", view);
+    }
+
+    @Test
+    public void drawDownTriangleShapeView()
+    {
+        DownTriangleShapeView view = new DownTriangleShapeView(InstrumentationRegistry.getTargetContext());
+        view.setColor(Color.WHITE);
+        view.setBorderColor(Color.BLACK);
+        view.setBorderWidth(2);
+        view.setShowBorder(true);
+        benchmarkDraw("drawDownTriangleShapeView", view);
+    }
+
+    /**
+     * Measures showing a ToolTip, up to and including placing and attaching its ToolTipView. Dismissing it is not
+     * measured.
+     *
+     * @param poolSize
+     *            the maximum size of the ToolTipView pool; 0 inflates a ToolTipView for every ToolTip.
+     */
+    private void benchmarkShow(final String name, final int renderMode, final int poolSize)
+    {
+        runOnMainSync(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ToolTipRelativeLayout toolTipRelativeLayout = getToolTipRelativeLayout();
+                toolTipRelativeLayout.setRenderMode(renderMode);
+                toolTipRelativeLayout.getToolTipViewPool().setMaxSize(poolSize);
+                View anchorView = getAnchorView();
+                ToolTip toolTip = createToolTip();
+
+                BenchmarkState state = new BenchmarkState(name);
+                while (state.keepRunning()) {
+                    ToolTipView toolTipView = toolTipRelativeLayout.showToolTipForView(toolTip, anchorView);
+
+                    state.pauseTiming();
+                    toolTipView.remove();
+                    state.resumeTiming();
+                }
+            }
+        });
+    }
+
+    private static void benchmarkDraw(final String name, final View view)
+    {
+        view.measure(View.MeasureSpec.makeMeasureSpec(DRAW_WIDTH, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(DRAW_HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, DRAW_WIDTH, DRAW_HEIGHT);
+        Canvas canvas = new Canvas(Bitmap.createBitmap(DRAW_WIDTH, DRAW_HEIGHT, Bitmap.Config.ARGB_8888));
+
+        BenchmarkState state = new BenchmarkState(name);
+        while (state.keepRunning()) {
+            view.draw(canvas);
+        }
+    }
+
+    /**
+     * @return a ToolTip without animation, so showing and dismissing it completes synchronously.
+     */
+    private static ToolTip createToolTip()
+    {
+        return new ToolTip()
+                .withText("Benchmark")
+                .withColor(Color.WHITE)
+                .withBorder()
+                .withShadow()
+                .withAnimationType(ToolTip.AnimationType.NONE)
+                .build();
+    }
+
+    private BenchmarkActivity getActivity()
+    {
+        return mActivityRule.getActivity();
+    }
+
+    private ToolTipRelativeLayout getToolTipRelativeLayout()
+    {
+        return getActivity().getToolTipRelativeLayout();
+    }
+
+    private View getAnchorView()
+    {
+        return getActivity().getAnchorView();
+    }
+
+    private static void runOnMainSync(final Runnable runnable)
+    {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nhaarman.supertooltips;
+
+import android.graphics.Color;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Toggles a ToolTipView between showing and dismissing faster than its animations can complete, and checks that it
+ * always settles in the last requested state without using more memory over time.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AnimationStateStressTest
+{
+
+    private static final int TOGGLE_COUNT = 1000;
+    private static final long ANIMATION_DURATION = 300;
+
+    /**
+     * Heap growth that is allowed between the first and the last toggles, for unrelated runtime allocations.
+     */
+    private static final long MAX_HEAP_GROWTH_BYTES = 64 * 1024;
+
+    @Rule
+    public final ActivityTestRule<ToolTipTestActivity> mActivityRule = new ActivityTestRule<>(ToolTipTestActivity.class);
+
+    private final ToolTip mToolTip = new ToolTip()
+            .withText("Toggled")
+            .withColor(Color.WHITE)
+            .withAnimationType(ToolTip.AnimationType.FROM_MASTER_VIEW, ANIMATION_DURATION)
+            .build();
+
+    @Test
+    public void thousandTogglesSettleInTheLastRequestedState()
+    {
+        final ToolTipView toolTipView = show();
+
+        // An odd amount of toggles, starting with a dismissal, ends with showing.
+        toggle(toolTipView, TOGGLE_COUNT - 1);
+        waitForAnimation();
+        runOnMainSync(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                assertNotNull(toolTipView.getParent());
+                assertEquals(1, toolTipView.getAlpha(), 0);
+                assertEquals(1, toolTipView.getScaleX(), 0);
+                assertEquals(1, toolTipView.getScaleY(), 0);
+            }
+        });
+
+        toggle(toolTipView, 1);
+        waitForAnimation();
+        runOnMainSync(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                assertNull(toolTipView.getParent());
+                assertEquals(0, mActivityRule.getActivity().getToolTipRelativeLayout().getChildCount());
+            }
+        });
+    }
+
+    @Test
+    public void togglesKeepAConstantMemoryFootprint()
+    {
+        ToolTipView toolTipView = show();
+
+        // Warm up, so lazily created state is not counted.
+        toggle(toolTipView, TOGGLE_COUNT / 10);
+        long heapBefore = getUsedHeapAfterGc();
+
+        toggle(toolTipView, TOGGLE_COUNT);
+        long heapAfter = getUsedHeapAfterGc();
+
+        assertTrue("heap grew by " + (heapAfter - heapBefore) + " bytes", heapAfter - heapBefore <= MAX_HEAP_GROWTH_BYTES);
+    }
+
+    private ToolTipView show()
+    {
+        final ToolTipView[] toolTipView = new ToolTipView[1];
+        runOnMainSync(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ToolTipTestActivity activity = mActivityRule.getActivity();
+                toolTipView[0] = activity.getToolTipRelativeLayout().showToolTipForView(mToolTip, activity.getAnchorView());
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        return toolTipView[0];
+    }
+
+    /**
+     * Alternately dismisses and shows given ToolTipView, starting with a dismissal, without waiting for its animations.
+     */
+    private void toggle(final ToolTipView toolTipView, final int count)
+    {
+        runOnMainSync(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                Anchor anchor = Anchor.ofView(mActivityRule.getActivity().getAnchorView());
+                for (int i = 0; i < count; i++) {
+                    if (i % 2 == 0) {
+                        toolTipView.remove();
+                    }
+                    else {
+                        toolTipView.setToolTip(mToolTip, anchor);
+                    }
+                }
+            }
+        });
+    }
+
+    private static void waitForAnimation()
+    {
+        SystemClock.sleep(ANIMATION_DURATION * 2);
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+    }
+
+    private static long getUsedHeapAfterGc()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            runtime.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void runOnMainSync(final Runnable runnable)
+    {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+}
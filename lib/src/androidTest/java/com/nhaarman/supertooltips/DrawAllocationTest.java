@@ -0,0 +1,107 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nhaarman.supertooltips;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that drawing the shape views of a ToolTipView does not allocate, so animating a ToolTipView causes no
+ * garbage collections.
+ */
+@RunWith(AndroidJUnit4.class)
+@SuppressWarnings("deprecation")
+public class DrawAllocationTest
+{
+
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 80;
+    private static final int DRAW_COUNT = 100;
+
+    @Test
+    public void roundedBackgroundViewDoesNotAllocateWhileDrawing()
+    {
+        RoundedBackgroundView view = new RoundedBackgroundView(InstrumentationRegistry.getTargetContext());
+        view.setColor(Color.WHITE);
+        view.setBorderColor(Color.BLACK);
+        view.setBorderWidth(2);
+        view.setRadius(12);
+        view.setShowBorder(true);
+        view.setShadow(6, Color.BLACK);
+
+        assertEquals(0, countDrawAllocations(view));
+    }
+
+    @Test
+    public void upTriangleShapeViewDoesNotAllocateWhileDrawing()
+    {
+        UpTriangleShapeView view = new UpTriangleShapeView(InstrumentationRegistry.getTargetContext());
+        view.setColor(Color.WHITE);
+        view.setBorderColor(Color.BLACK);
+        view.setShowBorder(true);
+        view.setTipArcSize(4);
+
+        assertEquals(0, countDrawAllocations(view));
+    }
+
+    @Test
+    public void downTriangleShapeViewDoesNotAllocateWhileDrawing()
+    {
+        DownTriangleShapeView view = new DownTriangleShapeView(InstrumentationRegistry.getTargetContext());
+        view.setColor(Color.WHITE);
+        view.setBorderColor(Color.BLACK);
+        view.setShowBorder(true);
+        view.setTipArcSize(4);
+
+        assertEquals(0, countDrawAllocations(view));
+    }
+
+    /**
+     * Lays out given View and draws it repeatedly, after drawing it once so lazily created state exists.
+     *
+     * @return the amount of objects allocated on this thread while drawing.
+     */
+    private static int countDrawAllocations(final View view)
+    {
+        view.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, WIDTH, HEIGHT);
+        Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        view.draw(canvas);
+
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocCount();
+        try {
+            for (int i = 0; i < DRAW_COUNT; i++) {
+                view.draw(canvas);
+            }
+            return Debug.getThreadAllocCount();
+        }
+        finally {
+            Debug.stopAllocCounting();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nhaarman.supertooltips;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.Intent;
+import android.graphics.Color;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that neither a detached anchor, its ToolTipView nor a finished Activity stay reachable through the
+ * ToolTipViews shown in it.
+ */
+@RunWith(AndroidJUnit4.class)
+public class HeapRetentionTest
+{
+
+    private static final int GC_ATTEMPTS = 10;
+    private static final long GC_INTERVAL_MILLIS = 100;
+
+    private final Instrumentation mInstrumentation = InstrumentationRegistry.getInstrumentation();
+
+    private final ToolTip mToolTip = new ToolTip()
+            .withText("Retained?")
+            .withColor(Color.WHITE)
+            .withShadow()
+            .build();
+
+    @Test
+    public void detachedAnchorAndItsToolTipViewAreNotRetained()
+    {
+        final ToolTipTestActivity activity = startActivity();
+        final WeakReference<?>[] references = new WeakReference<?>[2];
+
+        mInstrumentation.runOnMainSync(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                TextView anchorView = new TextView(activity);
+                anchorView.setText("Detached anchor");
+                ((ViewGroup) activity.findViewById(android.R.id.content)).addView(anchorView, 0);
+
+                ToolTipRelativeLayout toolTipRelativeLayout = activity.getToolTipRelativeLayout();
+                toolTipRelativeLayout.setAnchorTrackingEnabled(true);
+                ToolTipView toolTipView = toolTipRelativeLayout.showToolTipForView(mToolTip, anchorView);
+
+                references[0] = new WeakReference<>(anchorView);
+                references[1] = new WeakReference<>(toolTipView);
+            }
+        });
+        mInstrumentation.waitForIdleSync();
+
+        mInstrumentation.runOnMainSync(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ((ViewGroup) activity.findViewById(android.R.id.content)).removeViewAt(0);
+            }
+        });
+        mInstrumentation.waitForIdleSync();
+
+        assertCollected("anchor", references[0]);
+        assertCollected("ToolTipView", references[1]);
+
+        finish(activity);
+    }
+
+    @Test
+    public void finishedActivityIsNotRetained()
+    {
+        WeakReference<Activity> activityReference = showToolTipsInNewActivity();
+
+        assertCollected("Activity", activityReference);
+    }
+
+    /**
+     * Starts an Activity, shows ToolTips in it in both render modes, and finishes it while they are still shown.
+     * Only a weak reference to the Activity is kept, so it can be collected afterwards.
+     */
+    private WeakReference<Activity> showToolTipsInNewActivity()
+    {
+        final ToolTipTestActivity activity = startActivity();
+        mInstrumentation.runOnMainSync(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ToolTipRelativeLayout toolTipRelativeLayout = activity.getToolTipRelativeLayout();
+                toolTipRelativeLayout.setAnchorTrackingEnabled(true);
+                toolTipRelativeLayout.showToolTipForView(mToolTip, activity.getAnchorView()).setFollowAnchorEnabled(true);
+                toolTipRelativeLayout.setRenderMode(ToolTipRelativeLayout.RENDER_MODE_FLAT);
+                toolTipRelativeLayout.showToolTipForView(mToolTip, activity.getAnchorView());
+                toolTipRelativeLayout.getToolTipViewPool().setMaxSize(2);
+                toolTipRelativeLayout.getToolTipViewPool().prewarm(2);
+            }
+        });
+        mInstrumentation.waitForIdleSync();
+
+        finish(activity);
+        return new WeakReference<Activity>(activity);
+    }
+
+    private ToolTipTestActivity startActivity()
+    {
+        Intent intent = new Intent(mInstrumentation.getTargetContext(), ToolTipTestActivity.class);
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        return (ToolTipTestActivity) mInstrumentation.startActivitySync(intent);
+    }
+
+    private void finish(final ToolTipTestActivity activity)
+    {
+        mInstrumentation.runOnMainSync(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                activity.finish();
+            }
+        });
+        while (!activity.hasBeenDestroyed()) {
+            SystemClock.sleep(GC_INTERVAL_MILLIS);
+        }
+        mInstrumentation.waitForIdleSync();
+    }
+
+    private static void assertCollected(final String name, final WeakReference<?> reference)
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < GC_ATTEMPTS && reference.get() != null; i++) {
+            runtime.gc();
+            runtime.runFinalization();
+            SystemClock.sleep(GC_INTERVAL_MILLIS);
+        }
+        assertNull(name + " is still reachable", reference.get());
+    }
+}
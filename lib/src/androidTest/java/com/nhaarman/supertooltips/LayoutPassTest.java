@@ -0,0 +1,203 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nhaarman.supertooltips;
+
+import android.app.Instrumentation;
+import android.graphics.Color;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.ViewTreeObserver;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Counts the layout passes that showing, moving and dismissing a ToolTipView cause. A ToolTipView is positioned by
+ * its translation only, so none of these should lay out the window, and showing should lay out the ToolTipView once.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LayoutPassTest
+{
+
+    private static final int MOVE_DISTANCE = 50;
+
+    @Rule
+    public final ActivityTestRule<ToolTipTestActivity> mActivityRule = new ActivityTestRule<>(ToolTipTestActivity.class);
+
+    private final Instrumentation mInstrumentation = InstrumentationRegistry.getInstrumentation();
+    private final WindowLayoutCounter mWindowLayoutCounter = new WindowLayoutCounter();
+    private final FirstDrawRecorder mFirstDrawRecorder = new FirstDrawRecorder();
+
+    private final ToolTip mToolTip = new ToolTip()
+            .withText("Laid out once")
+            .withColor(Color.WHITE)
+            .withAnimationType(ToolTip.AnimationType.NONE)
+            .build();
+
+    @Before
+    public void setUp()
+    {
+        mInstrumentation.waitForIdleSync();
+        mInstrumentation.runOnMainSync(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ToolTipTestActivity activity = mActivityRule.getActivity();
+                activity.getToolTipRelativeLayout().setToolTipMetrics(mFirstDrawRecorder);
+                activity.getWindow().getDecorView().getViewTreeObserver().addOnGlobalLayoutListener(mWindowLayoutCounter);
+            }
+        });
+    }
+
+    @After
+    public void tearDown()
+    {
+        mInstrumentation.runOnMainSync(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                mActivityRule.getActivity().getWindow().getDecorView().getViewTreeObserver().removeGlobalOnLayoutListener(mWindowLayoutCounter);
+            }
+        });
+    }
+
+    @Test
+    public void showLaysOutTheToolTipViewOnce()
+    {
+        show();
+
+        assertEquals(1, mFirstDrawRecorder.mFirstDrawCount);
+        assertTrue("laid out " + mFirstDrawRecorder.mLayoutPasses + " times", mFirstDrawRecorder.mLayoutPasses <= 1);
+        assertEquals(0, mWindowLayoutCounter.mCount);
+    }
+
+    @Test
+    public void moveDoesNotLayOut()
+    {
+        final ToolTipView toolTipView = show();
+        mWindowLayoutCounter.mCount = 0;
+
+        final float[] translationY = new float[2];
+        mInstrumentation.runOnMainSync(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                translationY[0] = toolTipView.getTranslationY();
+                mActivityRule.getActivity().getAnchorView().setTranslationY(MOVE_DISTANCE);
+                toolTipView.applyToolTipPosition(false);
+                translationY[1] = toolTipView.getTranslationY();
+                assertFalse(toolTipView.isLayoutRequested());
+            }
+        });
+        mInstrumentation.waitForIdleSync();
+
+        assertEquals(MOVE_DISTANCE, translationY[1] - translationY[0], 0);
+        assertEquals(0, mWindowLayoutCounter.mCount);
+    }
+
+    @Test
+    public void dismissDoesNotLayOutTheWindow()
+    {
+        final ToolTipView toolTipView = show();
+        mWindowLayoutCounter.mCount = 0;
+
+        mInstrumentation.runOnMainSync(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                toolTipView.remove();
+            }
+        });
+        mInstrumentation.waitForIdleSync();
+
+        assertEquals(0, mWindowLayoutCounter.mCount);
+    }
+
+    private ToolTipView show()
+    {
+        final ToolTipView[] toolTipView = new ToolTipView[1];
+        mInstrumentation.runOnMainSync(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ToolTipTestActivity activity = mActivityRule.getActivity();
+                toolTipView[0] = activity.getToolTipRelativeLayout().showToolTipForView(mToolTip, activity.getAnchorView());
+            }
+        });
+        mInstrumentation.waitForIdleSync();
+        return toolTipView[0];
+    }
+
+    private static class WindowLayoutCounter implements ViewTreeObserver.OnGlobalLayoutListener
+    {
+
+        private int mCount;
+
+        @Override
+        public void onGlobalLayout()
+        {
+            mCount++;
+        }
+    }
+
+    private static class FirstDrawRecorder implements ToolTipMetrics
+    {
+
+        private int mFirstDrawCount;
+        private int mLayoutPasses;
+
+        @Override
+        public void onToolTipViewInflated(final long durationNanos)
+        {
+        }
+
+        @Override
+        public void onToolTipBound(final ToolTipView toolTipView, final long durationNanos)
+        {
+        }
+
+        @Override
+        public void onToolTipFirstDraw(final ToolTipView toolTipView, final long sinceShowNanos, final int layoutPasses)
+        {
+            mFirstDrawCount++;
+            mLayoutPasses = layoutPasses;
+        }
+
+        @Override
+        public void onAppearanceAnimationEnd(final ToolTipView toolTipView, final long durationNanos, final int droppedFrames)
+        {
+        }
+
+        @Override
+        public void onDisappearanceAnimationEnd(final ToolTipView toolTipView, final long durationNanos, final int droppedFrames)
+        {
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.app.Instrumentation;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.text.TextPaint;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that a ToolTip that leaves its text size and color unset looks the same when its text is prepared ahead of
+ * time as when it is laid out by the TextView of a ToolTipView in {@link ToolTipRelativeLayout#RENDER_MODE_VIEWS}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PreparedTextParityTest
+{
+
+    /**
+     * Text is measured by a TextView in one case and by a StaticLayout in the other, which may round differently.
+     */
+    private static final int TOLERANCE_PX = 1;
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    @Rule
+    public final ActivityTestRule<ToolTipTestActivity> mActivityRule = new ActivityTestRule<>(ToolTipTestActivity.class);
+
+    private final Instrumentation mInstrumentation = InstrumentationRegistry.getInstrumentation();
+
+    @Test
+    public void preparedTextUsesTheDefaultsOfTheTextView()
+    {
+        final ToolTip toolTip = createToolTip();
+        final float[] textSizes = new float[2];
+        final int[] textColors = new int[2];
+
+        final ToolTipView toolTipView = showSync(toolTip);
+        mInstrumentation.runOnMainSync(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                TextView textView = findTextView(toolTipView);
+                textSizes[0] = textView.getTextSize();
+                textColors[0] = textView.getCurrentTextColor();
+
+                TextPaint paint = PreparedText.prepare(mActivityRule.getActivity(), toolTip, Integer.MAX_VALUE).getLayout().getPaint();
+                textSizes[1] = paint.getTextSize();
+                textColors[1] = paint.getColor();
+
+                toolTipView.remove();
+            }
+        });
+
+        assertEquals(textSizes[0], textSizes[1], 0);
+        assertEquals(Integer.toHexString(textColors[0]), Integer.toHexString(textColors[1]));
+    }
+
+    @Test
+    public void asyncToolTipHasTheSameBoundsAsSyncToolTip() throws InterruptedException
+    {
+        ToolTip toolTip = createToolTip();
+
+        int[] sync = boundsOf(showSync(toolTip));
+        int[] async = boundsOf(showAsync(toolTip));
+
+        String[] names = {"width", "height"};
+        for (int i = 0; i < names.length; i++) {
+            assertTrue(names[i] + ": sync " + sync[i] + ", async " + async[i], Math.abs(sync[i] - async[i]) <= TOLERANCE_PX);
+        }
+    }
+
+    private ToolTipView showSync(final ToolTip toolTip)
+    {
+        final ToolTipView[] toolTipView = new ToolTipView[1];
+        mInstrumentation.runOnMainSync(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ToolTipTestActivity activity = mActivityRule.getActivity();
+                activity.getToolTipRelativeLayout().setRenderMode(ToolTipRelativeLayout.RENDER_MODE_VIEWS);
+                toolTipView[0] = activity.getToolTipRelativeLayout().showToolTipForView(toolTip, activity.getAnchorView());
+            }
+        });
+        mInstrumentation.waitForIdleSync();
+        return toolTipView[0];
+    }
+
+    private ToolTipView showAsync(final ToolTip toolTip) throws InterruptedException
+    {
+        final ToolTipView[] toolTipView = new ToolTipView[1];
+        final CountDownLatch shown = new CountDownLatch(1);
+        mInstrumentation.runOnMainSync(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ToolTipTestActivity activity = mActivityRule.getActivity();
+                activity.getToolTipRelativeLayout().setRenderMode(ToolTipRelativeLayout.RENDER_MODE_VIEWS);
+                PendingToolTip pendingToolTip = activity.getToolTipRelativeLayout().showToolTipForViewAsync(toolTip, activity.getAnchorView());
+                pendingToolTip.setOnToolTipShownListener(new PendingToolTip.OnToolTipShownListener()
+                {
+                    @Override
+                    public void onToolTipShown(final ToolTipView view)
+                    {
+                        toolTipView[0] = view;
+                        shown.countDown();
+                    }
+                });
+            }
+        });
+        assertTrue("the ToolTip was not shown", shown.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        mInstrumentation.waitForIdleSync();
+        return toolTipView[0];
+    }
+
+    /**
+     * @return the width and height of given ToolTipView, which is dismissed afterwards.
+     */
+    private int[] boundsOf(final ToolTipView toolTipView)
+    {
+        final int[] result = new int[2];
+        mInstrumentation.runOnMainSync(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                result[0] = toolTipView.getWidth();
+                result[1] = toolTipView.getHeight();
+                toolTipView.remove();
+            }
+        });
+        return result;
+    }
+
+    private static TextView findTextView(final View view)
+    {
+        if (view instanceof TextView) {
+            return (TextView) view;
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup viewGroup = (ViewGroup) view;
+            for (int i = 0; i < viewGroup.getChildCount(); i++) {
+                TextView textView = findTextView(viewGroup.getChildAt(i));
+                if (textView != null) {
+                    return textView;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return a ToolTip that leaves the text size and color to their defaults.
+     */
+    private static ToolTip createToolTip()
+    {
+        return new ToolTip()
+                .withText("A ToolTip with the default text style")
+                .withAnimationType(ToolTip.AnimationType.NONE)
+                .build();
+    }
+}
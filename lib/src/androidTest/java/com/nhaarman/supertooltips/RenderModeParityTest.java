@@ -0,0 +1,156 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nhaarman.supertooltips;
+
+import android.app.Instrumentation;
+import android.graphics.Color;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that a ToolTip looks the same in {@link ToolTipRelativeLayout#RENDER_MODE_FLAT} as in
+ * {@link ToolTipRelativeLayout#RENDER_MODE_VIEWS}, using a single View instead of a hierarchy.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RenderModeParityTest
+{
+
+    /**
+     * Text is measured by a TextView in one mode and by a StaticLayout in the other, which may round differently.
+     */
+    private static final int TOLERANCE_PX = 1;
+
+    @Rule
+    public final ActivityTestRule<ToolTipTestActivity> mActivityRule = new ActivityTestRule<>(ToolTipTestActivity.class);
+
+    @Test
+    public void toolTipAboveAnchorHasTheSameBoundsInBothModes()
+    {
+        assertSameBounds(createToolTip().requestShowAbove().build());
+    }
+
+    @Test
+    public void toolTipBelowAnchorHasTheSameBoundsInBothModes()
+    {
+        assertSameBounds(createToolTip().requestShowBelow().build());
+    }
+
+    @Test
+    public void toolTipWithDefaultTextStyleHasTheSameBoundsInBothModes()
+    {
+        // The text size and color are left to the theme, which both modes must resolve the same way.
+        ToolTip toolTip = new ToolTip()
+                .withText("A ToolTip with the default text style")
+                .withAnimationType(ToolTip.AnimationType.NONE)
+                .build();
+        assertSameBounds(toolTip);
+    }
+
+    @Test
+    public void flatToolTipViewIsASingleView()
+    {
+        ToolTip toolTip = createToolTip().build();
+
+        int viewsModeViewCount = show(ToolTipRelativeLayout.RENDER_MODE_VIEWS, toolTip)[4];
+        int flatModeViewCount = show(ToolTipRelativeLayout.RENDER_MODE_FLAT, toolTip)[4];
+
+        assertTrue("views mode uses " + viewsModeViewCount + " views", viewsModeViewCount > 1);
+        assertEquals(1, flatModeViewCount);
+    }
+
+    private void assertSameBounds(final ToolTip toolTip)
+    {
+        int[] views = show(ToolTipRelativeLayout.RENDER_MODE_VIEWS, toolTip);
+        int[] flat = show(ToolTipRelativeLayout.RENDER_MODE_FLAT, toolTip);
+
+        String[] names = {"x", "y", "width", "height"};
+        for (int i = 0; i < names.length; i++) {
+            assertTrue(names[i] + ": views " + views[i] + ", flat " + flat[i], Math.abs(views[i] - flat[i]) <= TOLERANCE_PX);
+        }
+    }
+
+    /**
+     * Shows given ToolTip in given render mode, waits until it is laid out and dismisses it again.
+     *
+     * @return the x, y, width and height of the ToolTipView while it was shown, and the amount of Views it consists of.
+     */
+    private int[] show(final int renderMode, final ToolTip toolTip)
+    {
+        final ToolTipTestActivity activity = mActivityRule.getActivity();
+        final ToolTipView[] toolTipView = new ToolTipView[1];
+        final int[] result = new int[5];
+
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        instrumentation.runOnMainSync(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                activity.getToolTipRelativeLayout().setRenderMode(renderMode);
+                toolTipView[0] = activity.getToolTipRelativeLayout().showToolTipForView(toolTip, activity.getAnchorView());
+            }
+        });
+        instrumentation.waitForIdleSync();
+        instrumentation.runOnMainSync(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                result[0] = Math.round(toolTipView[0].getX());
+                result[1] = Math.round(toolTipView[0].getY());
+                result[2] = toolTipView[0].getWidth();
+                result[3] = toolTipView[0].getHeight();
+                result[4] = countViews(toolTipView[0]);
+                toolTipView[0].remove();
+            }
+        });
+        return result;
+    }
+
+    private static int countViews(final View view)
+    {
+        int count = 1;
+        if (view instanceof ViewGroup) {
+            ViewGroup viewGroup = (ViewGroup) view;
+            for (int i = 0; i < viewGroup.getChildCount(); i++) {
+                count += countViews(viewGroup.getChildAt(i));
+            }
+        }
+        return count;
+    }
+
+    private static ToolTip createToolTip()
+    {
+        return new ToolTip()
+                .withText("A ToolTip in two render modes")
+                .withColor(Color.WHITE)
+                .withBorder()
+                .withHorizontalPadding(20)
+                .withVerticalPadding(12)
+                .withAnimationType(ToolTip.AnimationType.NONE);
+    }
+}
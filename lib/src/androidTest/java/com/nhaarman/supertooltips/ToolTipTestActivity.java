@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nhaarman.supertooltips;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.view.Gravity;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+/**
+ * Hosts an anchor View in the center of the window and the {@link ToolTipRelativeLayout} to show ToolTips in.
+ */
+public class ToolTipTestActivity extends Activity
+{
+
+    private TextView mAnchorView;
+    private ToolTipRelativeLayout mToolTipRelativeLayout;
+    private volatile boolean mDestroyed;
+
+    @Override
+    protected void onCreate(final Bundle savedInstanceState)
+    {
+        super.onCreate(savedInstanceState);
+
+        FrameLayout contentView = new FrameLayout(this);
+        mAnchorView = new TextView(this);
+        mAnchorView.setText("Anchor");
+        contentView.addView(mAnchorView, new FrameLayout.LayoutParams(FrameLayout.LayoutParams.WRAP_CONTENT, FrameLayout.LayoutParams.WRAP_CONTENT, Gravity.CENTER));
+        setContentView(contentView);
+
+        mToolTipRelativeLayout = ToolTipRelativeLayout.attach(this);
+    }
+
+    @Override
+    protected void onDestroy()
+    {
+        super.onDestroy();
+        mDestroyed = true;
+    }
+
+    /**
+     * Same as {@link #isDestroyed()}, which needs API level 17. Safe to call from any thread.
+     */
+    public boolean hasBeenDestroyed()
+    {
+        return mDestroyed;
+    }
+
+    public TextView getAnchorView()
+    {
+        return mAnchorView;
+    }
+
+    public ToolTipRelativeLayout getToolTipRelativeLayout()
+    {
+        return mToolTipRelativeLayout;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.graphics.Rect;
+import android.view.View;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * The area on screen a {@link ToolTipView} points at. An Anchor is backed by a View, by a fixed rect, or by a
+ * subclass that supplies its rect on demand. The latter can point at content that is drawn on a canvas, such as a
+ * data point in a chart, without a View per point.</p>
+ * The bounds are asked for whenever the ToolTipView is positioned, for example on every
+ * {@link ToolTipRelativeLayout#requestToolTipReposition()}. A subclass that moves its rect should call that method,
+ * and keep {@link #getScreenBounds(Rect)} cheap.</p>
+ * View backed Anchors only hold their View weakly, so a ToolTipView never keeps its anchor alive.
+ */
+public abstract class Anchor
+{
+
+    /**
+     * Writes the bounds of this Anchor, in screen coordinates, to given rect.
+     *
+     * @return false if this Anchor has no bounds right now, in which case the ToolTipView keeps its position.
+     */
+    public abstract boolean getScreenBounds(Rect outBounds);
+
+    /**
+     * @return the View this Anchor moves along with, or null if there is none. ToolTipViews with anchor tracking
+     * enabled listen to its layout changes.
+     */
+    View getView()
+    {
+        return null;
+    }
+
+    /**
+     * @return an Anchor that points at given View.
+     */
+    public static Anchor ofView(final View view)
+    {
+        return new ViewAnchor(view);
+    }
+
+    /**
+     * @return an Anchor that points at given rect, in screen coordinates. The rect is copied.
+     */
+    public static Anchor ofRect(final Rect screenBounds)
+    {
+        return new RectAnchor(screenBounds);
+    }
+
+    /**
+     * @return an Anchor that points at given rect, relative to the top left corner of given View. The rect is not
+     * copied, so changes to it are picked up the next time the ToolTipView is positioned.
+     */
+    public static Anchor ofRect(final View view, final Rect bounds)
+    {
+        return new ViewRectAnchor(view, bounds);
+    }
+
+    private static final class ViewAnchor extends Anchor
+    {
+
+        private final WeakReference<View> mView;
+        private final int[] mScreenPosition = new int[2];
+
+        ViewAnchor(final View view)
+        {
+            mView = new WeakReference<>(view);
+        }
+
+        @Override
+        public boolean getScreenBounds(final Rect outBounds)
+        {
+            View view = mView.get();
+            if (view == null) {
+                return false;
+            }
+
+            view.getLocationOnScreen(mScreenPosition);
+            outBounds.set(mScreenPosition[0], mScreenPosition[1], mScreenPosition[0] + view.getWidth(), mScreenPosition[1] + view.getHeight());
+            return true;
+        }
+
+        @Override
+        View getView()
+        {
+            return mView.get();
+        }
+    }
+
+    private static final class RectAnchor extends Anchor
+    {
+
+        private final Rect mScreenBounds;
+
+        RectAnchor(final Rect screenBounds)
+        {
+            mScreenBounds = new Rect(screenBounds);
+        }
+
+        @Override
+        public boolean getScreenBounds(final Rect outBounds)
+        {
+            outBounds.set(mScreenBounds);
+            return true;
+        }
+    }
+
+    private static final class ViewRectAnchor extends Anchor
+    {
+
+        private final WeakReference<View> mView;
+        private final Rect mBounds;
+        private final int[] mScreenPosition = new int[2];
+
+        ViewRectAnchor(final View view, final Rect bounds)
+        {
+            mView = new WeakReference<>(view);
+            mBounds = bounds;
+        }
+
+        @Override
+        public boolean getScreenBounds(final Rect outBounds)
+        {
+            View view = mView.get();
+            if (view == null) {
+                return false;
+            }
+
+            view.getLocationOnScreen(mScreenPosition);
+            outBounds.set(mBounds);
+            outBounds.offset(mScreenPosition[0], mScreenPosition[1]);
+            return true;
+        }
+
+        @Override
+        View getView()
+        {
+            return mView.get();
+        }
+    }
+}
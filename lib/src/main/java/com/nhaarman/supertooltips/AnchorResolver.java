@@ -0,0 +1,213 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.app.Activity;
+import android.content.res.Resources;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Finds the anchor Views of ToolTips in the window of an Activity, and remembers them per Activity. Tours that
+ * point at the same Views over and over again only traverse the view hierarchy once per View.</p>
+ * Cached Views are held weakly, and are checked before they are returned: a View that was removed from the window,
+ * or whose id changed, is looked up again. Must only be used from the main thread.
+ */
+final class AnchorResolver
+{
+
+    private static final int UNRESOLVED = -1;
+
+    private static final Map<Activity, AnchorResolver> sResolvers = new WeakHashMap<>();
+    private static final Map<Class<?>, String> sSimpleNames = new HashMap<>();
+
+    private static int sSystemActionBarResId = UNRESOLVED;
+    private static int sSystemActionBarTitleResId = UNRESOLVED;
+
+    private final SparseArray<WeakReference<View>> mViews = new SparseArray<>();
+    private WeakReference<View> mOverflowMenuButton;
+    private WeakReference<View> mActionBarTitleView;
+
+    private int mAppActionBarResId = UNRESOLVED;
+    private int mAppActionBarTitleResId = UNRESOLVED;
+
+    private AnchorResolver()
+    {
+    }
+
+    /**
+     * @return the View with given resource id in the window of given Activity, or null if there is none.
+     */
+    static View findViewById(final Activity activity, final int resId)
+    {
+        View decorView = activity.getWindow().getDecorView();
+        AnchorResolver resolver = obtain(activity);
+
+        View view = get(resolver.mViews.get(resId), decorView);
+        if (view != null && view.getId() == resId) {
+            return view;
+        }
+
+        view = decorView.findViewById(resId);
+        if (view == null) {
+            resolver.mViews.remove(resId);
+        }
+        else {
+            resolver.mViews.put(resId, new WeakReference<>(view));
+        }
+        return view;
+    }
+
+    /**
+     * @return the title View of the ActionBar of given Activity, either the framework's or AppCompat's, or null if
+     * there is none.
+     */
+    static View findActionBarTitleView(final Activity activity)
+    {
+        View decorView = activity.getWindow().getDecorView();
+        AnchorResolver resolver = obtain(activity);
+
+        View titleView = get(resolver.mActionBarTitleView, decorView);
+        if (titleView != null) {
+            return titleView;
+        }
+
+        if (sSystemActionBarTitleResId == UNRESOLVED) {
+            sSystemActionBarTitleResId = Resources.getSystem().getIdentifier(ToolTipRelativeLayout.ACTION_BAR_TITLE, ToolTipRelativeLayout.ID, ToolTipRelativeLayout.ANDROID);
+        }
+        if (resolver.mAppActionBarTitleResId == UNRESOLVED) {
+            resolver.mAppActionBarTitleResId = activity.getResources().getIdentifier(ToolTipRelativeLayout.ACTION_BAR_TITLE, ToolTipRelativeLayout.ID, activity.getPackageName());
+        }
+
+        titleView = findViewById(decorView, sSystemActionBarTitleResId);
+        if (titleView == null) {
+            titleView = findViewById(decorView, resolver.mAppActionBarTitleResId);
+        }
+
+        resolver.mActionBarTitleView = titleView == null ? null : new WeakReference<>(titleView);
+        return titleView;
+    }
+
+    /**
+     * @return the overflow menu button of given Activity, or null if there is none. Looks in the framework's and
+     * AppCompat's ActionBar first, and in any other ActionMenuView, such as one of a Toolbar, after that.
+     */
+    static View findOverflowMenuButton(final Activity activity)
+    {
+        View decorView = activity.getWindow().getDecorView();
+        AnchorResolver resolver = obtain(activity);
+
+        View overflowMenuButton = get(resolver.mOverflowMenuButton, decorView);
+        if (overflowMenuButton != null) {
+            return overflowMenuButton;
+        }
+
+        if (sSystemActionBarResId == UNRESOLVED) {
+            sSystemActionBarResId = Resources.getSystem().getIdentifier(ToolTipRelativeLayout.ACTION_BAR, ToolTipRelativeLayout.ID, ToolTipRelativeLayout.ANDROID);
+        }
+        if (resolver.mAppActionBarResId == UNRESOLVED) {
+            resolver.mAppActionBarResId = activity.getResources().getIdentifier(ToolTipRelativeLayout.ACTION_BAR, ToolTipRelativeLayout.ID, activity.getPackageName());
+        }
+
+        overflowMenuButton = findOverflowMenuButton(findViewById(decorView, sSystemActionBarResId));
+        if (overflowMenuButton == null) {
+            overflowMenuButton = findOverflowMenuButton(findViewById(decorView, resolver.mAppActionBarResId));
+        }
+        if (overflowMenuButton == null) {
+            overflowMenuButton = findOverflowMenuButton(decorView);
+        }
+
+        resolver.mOverflowMenuButton = overflowMenuButton == null ? null : new WeakReference<>(overflowMenuButton);
+        return overflowMenuButton;
+    }
+
+    private static AnchorResolver obtain(final Activity activity)
+    {
+        AnchorResolver resolver = sResolvers.get(activity);
+        if (resolver == null) {
+            resolver = new AnchorResolver();
+            sResolvers.put(activity, resolver);
+        }
+        return resolver;
+    }
+
+    /**
+     * @return the referenced View if it is still attached to the window of given decor View, or null otherwise.
+     */
+    private static View get(final WeakReference<View> reference, final View decorView)
+    {
+        if (reference == null) {
+            return null;
+        }
+
+        View view = reference.get();
+        if (view == null || view.getWindowToken() == null || view.getRootView() != decorView) {
+            return null;
+        }
+        return view;
+    }
+
+    private static View findViewById(final View root, final int resId)
+    {
+        return resId == 0 ? null : root.findViewById(resId);
+    }
+
+    /**
+     * Searches given View and its descendants for an ActionMenuView holding an overflow menu button.
+     */
+    private static View findOverflowMenuButton(final View view)
+    {
+        if (!(view instanceof ViewGroup)) {
+            return null;
+        }
+
+        ViewGroup viewGroup = (ViewGroup) view;
+        boolean isActionMenuView = ToolTipRelativeLayout.ACTION_MENU_VIEW.equals(getSimpleName(viewGroup.getClass()));
+
+        int childCount = viewGroup.getChildCount();
+        for (int i = 0; i < childCount; ++i) {
+            View child = viewGroup.getChildAt(i);
+            if (isActionMenuView && ToolTipRelativeLayout.OVERFLOW_MENU_BUTTON.equals(getSimpleName(child.getClass()))) {
+                return child;
+            }
+
+            View overflowMenuButton = findOverflowMenuButton(child);
+            if (overflowMenuButton != null) {
+                return overflowMenuButton;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Class.getSimpleName() is not cached on older platforms, so cache it here.
+     */
+    private static String getSimpleName(final Class<?> clazz)
+    {
+        String simpleName = sSimpleNames.get(clazz);
+        if (simpleName == null) {
+            simpleName = clazz.getSimpleName();
+            sSimpleNames.put(clazz, simpleName);
+        }
+        return simpleName;
+    }
+}
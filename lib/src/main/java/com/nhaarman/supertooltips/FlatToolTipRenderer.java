@@ -0,0 +1,389 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.view.View;
+
+/**
+ * Measures and draws a complete ToolTip - shadow, bubble, pointer and text - for a {@link ToolTipView} in
+ * {@link ToolTipRelativeLayout#RENDER_MODE_FLAT}, so the ToolTip needs a single View instead of a hierarchy.
+ */
+class FlatToolTipRenderer
+{
+
+    private static final int DEFAULT_RADIUS = 20;
+    private static final int DEFAULT_BORDER_WIDTH = 2;
+    private static final float DEFAULT_SHADOW_RADIUS_DP = 2;
+
+    private final Resources mResources;
+    private final int mPointerWidth;
+    private final int mPointerHeight;
+    private final int mPointerOverlap;
+    private final TextDefaults mTextDefaults;
+
+    private final TextPaint mTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mBorderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Path mPath = new Path();
+    private final Path mBorderPath = new Path();
+    private final RectF mRect = new RectF();
+
+    private ToolTipStyle mStyle;
+
+    private CharSequence mText;
+    private PreparedText mPreparedText;
+    private StaticLayout mTextLayout;
+    private int mTextLayoutWidth = -1;
+
+    private int mRadius;
+    private boolean mShowBorder;
+    private boolean mShowShadow;
+    private int mShadowSize;
+    private int mShadowColor;
+    private int mShadowRadius;
+    private ToolTipShadow mShadow;
+    private int mTipArcSize;
+    private int mPaddingLeft;
+    private int mPaddingTop;
+    private int mPaddingRight;
+    private int mPaddingBottom;
+
+    private boolean mShowBelow;
+    private int mPointerLeft;
+    private PointerGeometry mPointerGeometry;
+
+    private int mBubbleWidth;
+    private int mBubbleHeight;
+    private int mMeasuredWidth;
+    private int mMeasuredHeight;
+
+    FlatToolTipRenderer(final Context context)
+    {
+        mResources = context.getResources();
+        mPointerWidth = mResources.getDimensionPixelSize(R.dimen.tooltip_pointer_width);
+        mPointerHeight = mResources.getDimensionPixelSize(R.dimen.tooltip_pointer_height);
+        mPointerOverlap = mResources.getDimensionPixelSize(R.dimen.tooltip_pointer_overlap);
+
+        mTextDefaults = TextDefaults.of(context);
+
+        mBorderPaint.setStyle(Paint.Style.STROKE);
+        reset();
+    }
+
+    /**
+     * Restores the defaults, matching a freshly inflated tooltip layout.
+     */
+    void reset()
+    {
+        mStyle = null;
+        mText = null;
+        mPreparedText = null;
+        mTextLayout = null;
+        mTextLayoutWidth = -1;
+        resetStyle();
+
+        mShowBelow = false;
+        mPointerLeft = 0;
+        mPointerGeometry = null;
+        mBubbleWidth = -1;
+        mBubbleHeight = -1;
+    }
+
+    /**
+     * Restores the visual values to their defaults, so a ToolTip only needs to apply the values it sets.
+     */
+    private void resetStyle()
+    {
+        mTextPaint.setTextSize(mTextDefaults.getTextSize());
+        mTextPaint.setTypeface(null);
+        mTextPaint.setColor(mTextDefaults.getTextColor());
+        mPaint.setColor(Color.WHITE);
+        mBorderPaint.setColor(Color.BLACK);
+        mBorderPaint.setStrokeWidth(DEFAULT_BORDER_WIDTH);
+
+        mRadius = DEFAULT_RADIUS;
+        mShowBorder = false;
+        mShowShadow = false;
+        mShadowSize = 0;
+        mShadowColor = Color.TRANSPARENT;
+        mShadowRadius = (int) (DEFAULT_SHADOW_RADIUS_DP * mResources.getDisplayMetrics().density);
+        mShadow = null;
+        mTipArcSize = 0;
+        mPaddingLeft = mPaddingTop = mPaddingRight = mPaddingBottom = 0;
+    }
+
+    /**
+     * Applies the values of given ToolTip. A subsequent measure pass is needed before drawing.
+     */
+    void setToolTip(final ToolTip toolTip)
+    {
+        if (toolTip.getText() != null) {
+            mText = toolTip.getText();
+        }
+        else if (toolTip.getTextResId() != 0) {
+            mText = mResources.getText(toolTip.getTextResId());
+        }
+        else {
+            mText = null;
+        }
+        mPreparedText = toolTip.getPreparedText();
+        mTextLayout = null;
+        mPointerGeometry = null;
+        mBubbleWidth = -1;
+        mBubbleHeight = -1;
+
+        // Built ToolTips share interned styles, so an identical style is already applied.
+        ToolTipStyle style = toolTip.getStyle();
+        if (style == null || style != mStyle) {
+            applyStyle(toolTip);
+            mStyle = style;
+        }
+    }
+
+    private void applyStyle(final ToolTip toolTip)
+    {
+        resetStyle();
+
+        if (toolTip.getTypeface() != null) {
+            mTextPaint.setTypeface(toolTip.getTypeface());
+        }
+
+        if (toolTip.getTextColor() != 0) {
+            mTextPaint.setColor(toolTip.getTextColor());
+        }
+
+        if (toolTip.getColor() != 0) {
+            setColor(toolTip.getColor());
+        }
+
+        mShowBorder = toolTip.shouldShowBorder();
+
+        if (toolTip.getBorderColor() != 0) {
+            setBorderColor(toolTip.getBorderColor());
+        }
+
+        if (toolTip.getBorderWidth() != 0) {
+            setBorderWidth(toolTip.getBorderWidth());
+        }
+
+        if (toolTip.getBorderRadius() != 0) {
+            setRadius(toolTip.getBorderRadius());
+        }
+
+        if (toolTip.getTipArcSize() > 0) {
+            mTipArcSize = toolTip.getTipArcSize();
+        }
+
+        mShowShadow = toolTip.shouldShowShadow();
+        if (mShowShadow) {
+            mShadowSize = toolTip.getShadowSize() > 0 ? toolTip.getShadowSize() : (int) (2 * mResources.getDisplayMetrics().density);
+            mShadowColor = toolTip.getShadowColor();
+        }
+        updateShadow();
+
+        if (toolTip.getHorizontalPadding() >= 0) {
+            mPaddingLeft = mPaddingRight = toolTip.getHorizontalPadding();
+        }
+
+        if (toolTip.getVerticalPadding() >= 0) {
+            mPaddingTop = mPaddingBottom = toolTip.getVerticalPadding();
+        }
+    }
+
+    void setColor(final int color)
+    {
+        mStyle = null;
+        mPaint.setColor(color);
+    }
+
+    void setBorderColor(final int borderColor)
+    {
+        mStyle = null;
+        mBorderPaint.setColor(borderColor);
+    }
+
+    void setBorderWidth(final int borderWidth)
+    {
+        mStyle = null;
+        mBorderPaint.setStrokeWidth(borderWidth);
+    }
+
+    void setRadius(final int radius)
+    {
+        mStyle = null;
+        mRadius = radius;
+        mShadowRadius = radius;
+        updateShadow();
+        if (mBubbleWidth >= 0) {
+            updateBubblePaths();
+        }
+    }
+
+    /**
+     * @return true if the measured height changed, and a new layout is needed.
+     */
+    boolean setShowBelow(final boolean showBelow)
+    {
+        if (mShowBelow == showBelow) {
+            return false;
+        }
+
+        mShowBelow = showBelow;
+        mPointerGeometry = null;
+        return true;
+    }
+
+    void setPointerLeft(final int pointerLeft)
+    {
+        mPointerLeft = pointerLeft;
+    }
+
+    int getPointerLeft()
+    {
+        return mPointerLeft;
+    }
+
+    boolean isShowBelow()
+    {
+        return mShowBelow;
+    }
+
+    int getPointerWidth()
+    {
+        return mPointerWidth;
+    }
+
+    int getBubbleWidth()
+    {
+        return mBubbleWidth;
+    }
+
+    int getMeasuredWidth()
+    {
+        return mMeasuredWidth;
+    }
+
+    int getMeasuredHeight()
+    {
+        return mMeasuredHeight;
+    }
+
+    void measure(final int widthMeasureSpec, final int heightMeasureSpec)
+    {
+        int maxTextWidth = Integer.MAX_VALUE;
+        if (View.MeasureSpec.getMode(widthMeasureSpec) != View.MeasureSpec.UNSPECIFIED) {
+            maxTextWidth = Math.max(0, View.MeasureSpec.getSize(widthMeasureSpec) - mPaddingLeft - mPaddingRight);
+        }
+
+        int textWidth = 0;
+        int textHeight = 0;
+        if (mPreparedText != null) {
+            // Only lays out the text again if the prepared layout does not fit.
+            PreparedText fittingText = mPreparedText.withMaxWidth(maxTextWidth);
+            mTextLayout = fittingText.getLayout();
+            textWidth = fittingText.getWidth();
+            textHeight = fittingText.getHeight();
+        }
+        else if (mText != null) {
+            textWidth = Math.min(maxTextWidth, (int) Math.ceil(Layout.getDesiredWidth(mText, mTextPaint)));
+            if (mTextLayout == null || mTextLayoutWidth != textWidth) {
+                mTextLayout = new StaticLayout(mText, mTextPaint, textWidth, Layout.Alignment.ALIGN_NORMAL, 1, 0, true);
+                mTextLayoutWidth = textWidth;
+            }
+            textHeight = mTextLayout.getHeight();
+        }
+
+        int bubbleWidth = textWidth + mPaddingLeft + mPaddingRight;
+        int bubbleHeight = textHeight + mPaddingTop + mPaddingBottom;
+        if (bubbleWidth != mBubbleWidth || bubbleHeight != mBubbleHeight) {
+            mBubbleWidth = bubbleWidth;
+            mBubbleHeight = bubbleHeight;
+            updateBubblePaths();
+        }
+
+        int height = mBubbleHeight + mPointerHeight - mPointerOverlap;
+        if (mShowShadow) {
+            height = Math.max(height, getBubbleTop() + mBubbleHeight + mShadowSize);
+        }
+
+        mMeasuredWidth = View.resolveSize(Math.max(mBubbleWidth, mPointerWidth), widthMeasureSpec);
+        mMeasuredHeight = View.resolveSize(height, heightMeasureSpec);
+    }
+
+    void draw(final Canvas canvas)
+    {
+        int bubbleTop = getBubbleTop();
+
+        if (mShadow != null) {
+            mShadow.draw(canvas, 0, bubbleTop + mShadowSize, mBubbleWidth, bubbleTop + mShadowSize + mBubbleHeight);
+        }
+
+        canvas.save();
+        canvas.translate(0, bubbleTop);
+        canvas.drawPath(mPath, mPaint);
+        if (mShowBorder) {
+            canvas.drawPath(mBorderPath, mBorderPaint);
+        }
+        canvas.restore();
+
+        if (mPointerGeometry == null) {
+            PointerGeometry.Direction direction = mShowBelow ? PointerGeometry.Direction.UP : PointerGeometry.Direction.DOWN;
+            mPointerGeometry = PointerGeometry.obtain(mPointerWidth, mPointerHeight, mTipArcSize, mPointerOverlap - 1, direction);
+        }
+        canvas.save();
+        canvas.translate(mPointerLeft, mShowBelow ? 0 : bubbleTop + mBubbleHeight - mPointerOverlap);
+        mPointerGeometry.draw(canvas, mPaint, mBorderPaint, mShowBorder);
+        canvas.restore();
+
+        if (mTextLayout != null) {
+            canvas.save();
+            canvas.translate(mPaddingLeft, bubbleTop + mPaddingTop);
+            mTextLayout.draw(canvas);
+            canvas.restore();
+        }
+    }
+
+    private int getBubbleTop()
+    {
+        return mShowBelow ? mPointerHeight - mPointerOverlap : 0;
+    }
+
+    private void updateShadow()
+    {
+        mShadow = mShowShadow && mShadowColor != Color.TRANSPARENT ? ToolTipShadow.obtain(mShadowRadius, mShadowColor) : null;
+    }
+
+    private void updateBubblePaths()
+    {
+        mPath.reset();
+        mRect.set(0, 0, mBubbleWidth, mBubbleHeight);
+        mPath.addRoundRect(mRect, mRadius, mRadius, Path.Direction.CCW);
+
+        mBorderPath.reset();
+        mRect.set(1, 1, mBubbleWidth - 1, mBubbleHeight - 1);
+        mBorderPath.addRoundRect(mRect, mRadius, mRadius, Path.Direction.CCW);
+    }
+}
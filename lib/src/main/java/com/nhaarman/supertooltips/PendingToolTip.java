@@ -0,0 +1,97 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+/**
+ * A handle to a ToolTip that is being prepared by
+ * {@link ToolTipRelativeLayout#showToolTipForViewAsync(ToolTip, android.view.View)}. The ToolTip can be cancelled
+ * until its ToolTipView is attached. Must only be used from the main thread.
+ */
+public final class PendingToolTip
+{
+
+    // Also read by the background thread, to skip work for a cancelled ToolTip.
+    private volatile boolean mCancelled;
+    private ToolTipView mToolTipView;
+    private OnToolTipShownListener mListener;
+
+    PendingToolTip()
+    {
+    }
+
+    /**
+     * Cancels showing the ToolTip, if its ToolTipView has not been attached yet.
+     *
+     * @return true if the ToolTip was cancelled, false if it was already shown or cancelled.
+     */
+    public boolean cancel()
+    {
+        if (isDone()) {
+            return false;
+        }
+
+        mCancelled = true;
+        mListener = null;
+        return true;
+    }
+
+    public boolean isCancelled()
+    {
+        return mCancelled;
+    }
+
+    /**
+     * @return true if the ToolTip was shown or cancelled.
+     */
+    public boolean isDone()
+    {
+        return mCancelled || mToolTipView != null;
+    }
+
+    /**
+     * @return the ToolTipView that shows the ToolTip, or null if it has not been shown yet.
+     */
+    public ToolTipView getToolTipView()
+    {
+        return mToolTipView;
+    }
+
+    /**
+     * Set the listener that is notified once the ToolTipView is attached. Notified right away if that already
+     * happened.
+     */
+    public void setOnToolTipShownListener(final OnToolTipShownListener listener)
+    {
+        mListener = listener;
+        if (mToolTipView != null && listener != null) {
+            listener.onToolTipShown(mToolTipView);
+        }
+    }
+
+    void onShown(final ToolTipView toolTipView)
+    {
+        mToolTipView = toolTipView;
+        if (mListener != null) {
+            mListener.onToolTipShown(toolTipView);
+        }
+    }
+
+    public interface OnToolTipShownListener
+    {
+
+        void onToolTipShown(ToolTipView toolTipView);
+    }
+}
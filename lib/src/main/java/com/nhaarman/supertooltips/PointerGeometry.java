@@ -0,0 +1,147 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.util.LruCache;
+
+/**
+ * The fill and border paths of a ToolTip pointer. Instances are immutable and shared by all pointers with the same
+ * dimensions through {@link #obtain(int, int, int, int, Direction)}.
+ */
+final class PointerGeometry
+{
+
+    enum Direction
+    {
+        UP,
+        DOWN
+    }
+
+    private static final int CACHE_SIZE = 32;
+
+    private static final LruCache<Key, PointerGeometry> CACHE = new LruCache<>(CACHE_SIZE);
+
+    private final Path mPath = new Path();
+    private final Path mBorderPath = new Path();
+
+    private PointerGeometry(final int width, final int height, final int tipArcSize, final int borderInset, final Direction direction)
+    {
+        int newTriangleWidth = height > 0 ? (int) (((height - tipArcSize) / (float) height) * (width / 2f)) : 0;
+
+        if (direction == Direction.UP) {
+            mPath.moveTo(0, height);
+            mPath.lineTo(newTriangleWidth, tipArcSize);
+            mPath.quadTo(width / 2, 0, width - newTriangleWidth, tipArcSize);
+            mPath.lineTo(width, height);
+            mPath.lineTo(0, height);
+
+            mBorderPath.moveTo(0, height - borderInset);
+            mBorderPath.lineTo(newTriangleWidth, tipArcSize);
+            mBorderPath.quadTo(width / 2, 0, width - newTriangleWidth, tipArcSize);
+            mBorderPath.lineTo(width, height - borderInset);
+        }
+        else {
+            mPath.moveTo(0, 0);
+            mPath.lineTo(newTriangleWidth, height - tipArcSize);
+            mPath.quadTo(width / 2, height, width - newTriangleWidth, height - tipArcSize);
+            mPath.lineTo(width, 0);
+            mPath.lineTo(0, 0);
+
+            mBorderPath.moveTo(0, borderInset);
+            mBorderPath.lineTo(newTriangleWidth, height - tipArcSize);
+            mBorderPath.quadTo(width / 2, height, width - newTriangleWidth, height - tipArcSize);
+            mBorderPath.lineTo(width, borderInset);
+        }
+    }
+
+    /**
+     * Returns the shared geometry for a pointer with given dimensions.
+     *
+     * @param borderInset
+     *            the distance between the flat side of the pointer and the start of its border, which is where the
+     *            pointer overlaps the content.
+     */
+    static PointerGeometry obtain(final int width, final int height, final int tipArcSize, final int borderInset, final Direction direction)
+    {
+        Key key = new Key(width, height, tipArcSize, borderInset, direction);
+        PointerGeometry geometry = CACHE.get(key);
+        if (geometry == null) {
+            geometry = new PointerGeometry(width, height, tipArcSize, borderInset, direction);
+            CACHE.put(key, geometry);
+        }
+        return geometry;
+    }
+
+    void draw(final Canvas canvas, final Paint paint, final Paint borderPaint, final boolean showBorder)
+    {
+        canvas.drawPath(mPath, paint);
+
+        if (showBorder) {
+            canvas.drawPath(mBorderPath, borderPaint);
+        }
+    }
+
+    private static final class Key
+    {
+
+        private final int mWidth;
+        private final int mHeight;
+        private final int mTipArcSize;
+        private final int mBorderInset;
+        private final Direction mDirection;
+
+        Key(final int width, final int height, final int tipArcSize, final int borderInset, final Direction direction)
+        {
+            mWidth = width;
+            mHeight = height;
+            mTipArcSize = tipArcSize;
+            mBorderInset = borderInset;
+            mDirection = direction;
+        }
+
+        @Override
+        public boolean equals(final Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key) o;
+            return mWidth == key.mWidth
+                    && mHeight == key.mHeight
+                    && mTipArcSize == key.mTipArcSize
+                    && mBorderInset == key.mBorderInset
+                    && mDirection == key.mDirection;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int result = mWidth;
+            result = 31 * result + mHeight;
+            result = 31 * result + mTipArcSize;
+            result = 31 * result + mBorderInset;
+            result = 31 * result + mDirection.hashCode();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.nhaarman.supertooltips;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Draws the pointer of a ToolTip, using geometry that is shared between all pointers with the same dimensions.
+ * See {@link UpTriangleShapeView} and {@link DownTriangleShapeView}.
+ */
+public abstract class PointerShapeView extends View
+{
+    private final PointerGeometry.Direction _direction;
+
+    private int _color = 0;
+    private int _borderColor = 0;
+    private int _width = 0;
+    private int _tipArcSize = 0;
+    private boolean _showBorder;
+
+    private final Paint _paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint _borderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private PointerGeometry _geometry;
+
+    PointerShapeView(Context context, AttributeSet attrs, int defStyleAttr, PointerGeometry.Direction direction)
+    {
+        super(context, attrs, defStyleAttr);
+        _direction = direction;
+        _borderPaint.setStyle(Paint.Style.STROKE);
+        updatePaints();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh)
+    {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateGeometry();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas)
+    {
+        super.onDraw(canvas);
+
+        if (_geometry != null) {
+            _geometry.draw(canvas, _paint, _borderPaint, _showBorder);
+        }
+    }
+
+    private void updateGeometry()
+    {
+        if (getWidth() == 0 || getHeight() == 0) {
+            _geometry = null;
+            return;
+        }
+
+        // The pointer overlaps the content by its negative margin; the border starts where the content ends.
+        int overlap = 0;
+        ViewGroup.LayoutParams layoutParams = getLayoutParams();
+        if (layoutParams instanceof ViewGroup.MarginLayoutParams) {
+            ViewGroup.MarginLayoutParams marginLayoutParams = (ViewGroup.MarginLayoutParams) layoutParams;
+            overlap = _direction == PointerGeometry.Direction.UP ? marginLayoutParams.bottomMargin : marginLayoutParams.topMargin;
+        }
+
+        _geometry = PointerGeometry.obtain(getWidth(), getHeight(), _tipArcSize, Math.abs(overlap) - 1, _direction);
+    }
+
+    private void updatePaints()
+    {
+        _paint.setColor(_color != 0 ? _color : Color.WHITE);
+        _borderPaint.setColor(_borderColor != 0 ? _borderColor : Color.BLACK);
+        _borderPaint.setStrokeWidth(_width > 0 ? _width : 2);
+    }
+
+    public void setColor(int color)
+    {
+        if (_color != color) {
+            _color = color;
+            updatePaints();
+            invalidate();
+        }
+    }
+
+    public void setBorderColor(int borderColor)
+    {
+        if (_borderColor != borderColor) {
+            _borderColor = borderColor;
+            updatePaints();
+            invalidate();
+        }
+    }
+
+    public void setBorderWidth(int width)
+    {
+        if (_width != width) {
+            _width = width;
+            updatePaints();
+            invalidate();
+        }
+    }
+
+    public void setShowBorder(boolean showBorder)
+    {
+        if (_showBorder != showBorder) {
+            _showBorder = showBorder;
+            invalidate();
+        }
+    }
+
+    public void setTipArcSize(int tipArcSize)
+    {
+        if (_tipArcSize != tipArcSize) {
+            _tipArcSize = tipArcSize;
+            updateGeometry();
+            invalidate();
+        }
+    }
+}
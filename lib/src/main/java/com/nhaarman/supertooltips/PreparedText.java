@@ -0,0 +1,226 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.content.Context;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.LruCache;
+
+/**
+ * The text of a ToolTip, measured and broken into lines ahead of time. Pass it to
+ * {@link ToolTip#withPreparedText(PreparedText)} so the ToolTipView can draw the text without measuring it again.</p>
+ * Use {@link #prepareAsync(Context, ToolTip, int, Callback)} to do the work on a background thread. Prepared texts
+ * are cached by text, typeface, size, color and maximum width, so recurring ToolTips skip the work altogether.
+ */
+public final class PreparedText
+{
+
+    private static final int CACHE_SIZE = 64;
+
+    private static final LruCache<Key, PreparedText> CACHE = new LruCache<>(CACHE_SIZE);
+
+    private final Key mKey;
+    private final StaticLayout mLayout;
+
+    private PreparedText(final Key key)
+    {
+        mKey = key;
+
+        TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        paint.setTypeface(key.mTypeface);
+        paint.setTextSize(key.mTextSize);
+        paint.setColor(key.mColor);
+
+        int width = Math.min(key.mMaxWidth, (int) Math.ceil(Layout.getDesiredWidth(key.mText, paint)));
+        mLayout = new StaticLayout(key.mText, paint, width, Layout.Alignment.ALIGN_NORMAL, 1, 0, true);
+    }
+
+    /**
+     * Prepares the text of given ToolTip on the calling thread, or returns it from the cache.
+     *
+     * @param maxWidth
+     *            the maximum width of the text in pixels. Lines are broken to fit this width.
+     *
+     * @return the prepared text, or null if the ToolTip has no text.
+     */
+    public static PreparedText prepare(final Context context, final ToolTip toolTip, final int maxWidth)
+    {
+        Key key = createKey(context, toolTip, maxWidth);
+        return key != null ? obtain(key) : null;
+    }
+
+    /**
+     * Prepares the text of given ToolTip on a background thread. The callback is invoked on the main thread, right
+     * away if the text is cached. Must be called from the main thread.
+     *
+     * @param maxWidth
+     *            the maximum width of the text in pixels. Lines are broken to fit this width.
+     */
+    public static void prepareAsync(final Context context, final ToolTip toolTip, final int maxWidth, final Callback callback)
+    {
+        final Key key = createKey(context, toolTip, maxWidth);
+        PreparedText cached = key != null ? CACHE.get(key) : null;
+        if (key == null || cached != null) {
+            callback.onTextPrepared(cached);
+            return;
+        }
+
+        final Handler handler = new Handler(Looper.getMainLooper());
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                final PreparedText preparedText = obtain(key);
+                handler.post(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        callback.onTextPrepared(preparedText);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Returns this text prepared for a smaller maximum width. Returns this instance if it already fits.
+     */
+    PreparedText withMaxWidth(final int maxWidth)
+    {
+        if (mLayout.getWidth() <= maxWidth) {
+            return this;
+        }
+        return obtain(new Key(mKey.mText, mKey.mTypeface, mKey.mTextSize, mKey.mColor, maxWidth));
+    }
+
+    public CharSequence getText()
+    {
+        return mKey.mText;
+    }
+
+    /**
+     * @return the layout of the text. Its paint must not be modified.
+     */
+    public StaticLayout getLayout()
+    {
+        return mLayout;
+    }
+
+    public int getWidth()
+    {
+        return mLayout.getWidth();
+    }
+
+    public int getHeight()
+    {
+        return mLayout.getHeight();
+    }
+
+    private static PreparedText obtain(final Key key)
+    {
+        PreparedText preparedText = CACHE.get(key);
+        if (preparedText == null) {
+            preparedText = new PreparedText(key);
+            CACHE.put(key, preparedText);
+        }
+        return preparedText;
+    }
+
+    /**
+     * Resolves the text attributes of given ToolTip the same way a ToolTipView does.
+     */
+    private static Key createKey(final Context context, final ToolTip toolTip, final int maxWidth)
+    {
+        CharSequence text = toolTip.getText();
+        if (text == null && toolTip.getTextResId() != 0) {
+            text = context.getResources().getText(toolTip.getTextResId());
+        }
+        if (text == null) {
+            return null;
+        }
+
+        TextDefaults textDefaults = TextDefaults.of(context);
+        int color = toolTip.getTextColor() != 0 ? toolTip.getTextColor() : textDefaults.getTextColor();
+        return new Key(text, toolTip.getTypeface(), textDefaults.getTextSize(), color, Math.max(0, maxWidth));
+    }
+
+    public interface Callback
+    {
+
+        /**
+         * @param preparedText
+         *            the prepared text, or null if the ToolTip has no text.
+         */
+        void onTextPrepared(PreparedText preparedText);
+    }
+
+    private static final class Key
+    {
+
+        private final CharSequence mText;
+        private final Typeface mTypeface;
+        private final float mTextSize;
+        private final int mColor;
+        private final int mMaxWidth;
+
+        Key(final CharSequence text, final Typeface typeface, final float textSize, final int color, final int maxWidth)
+        {
+            mText = text;
+            mTypeface = typeface;
+            mTextSize = textSize;
+            mColor = color;
+            mMaxWidth = maxWidth;
+        }
+
+        @Override
+        public boolean equals(final Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key) o;
+            return mText.equals(key.mText)
+                    && (mTypeface == null ? key.mTypeface == null : mTypeface.equals(key.mTypeface))
+                    && mTextSize == key.mTextSize
+                    && mColor == key.mColor
+                    && mMaxWidth == key.mMaxWidth;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int result = mText.hashCode();
+            result = 31 * result + (mTypeface != null ? mTypeface.hashCode() : 0);
+            result = 31 * result + Float.floatToIntBits(mTextSize);
+            result = 31 * result + mColor;
+            result = 31 * result + mMaxWidth;
+            return result;
+        }
+    }
+}
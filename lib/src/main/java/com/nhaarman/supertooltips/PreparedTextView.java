@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.text.StaticLayout;
+import android.view.View;
+
+/**
+ * Draws a {@link PreparedText} in place of the TextView of a ToolTipView, so the text is not measured again.
+ */
+class PreparedTextView extends View
+{
+
+    private PreparedText mPreparedText;
+    private StaticLayout mLayout;
+
+    PreparedTextView(final Context context)
+    {
+        super(context);
+    }
+
+    void setPreparedText(final PreparedText preparedText)
+    {
+        if (mPreparedText != preparedText) {
+            mPreparedText = preparedText;
+            mLayout = null;
+            requestLayout();
+            invalidate();
+        }
+    }
+
+    @Override
+    protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec)
+    {
+        if (mPreparedText == null) {
+            mLayout = null;
+            setMeasuredDimension(0, 0);
+            return;
+        }
+
+        int maxWidth = Integer.MAX_VALUE;
+        if (MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.UNSPECIFIED) {
+            maxWidth = MeasureSpec.getSize(widthMeasureSpec);
+        }
+
+        // Only lays out the text again if the prepared layout does not fit.
+        PreparedText fittingText = mPreparedText.withMaxWidth(maxWidth);
+        mLayout = fittingText.getLayout();
+        setMeasuredDimension(resolveSize(fittingText.getWidth(), widthMeasureSpec), resolveSize(fittingText.getHeight(), heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(final Canvas canvas)
+    {
+        if (mLayout != null) {
+            mLayout.draw(canvas);
+        }
+    }
+}
@@ -20,20 +20,46 @@ public class RoundedBackgroundView extends FrameLayout
     private int _radius = -1;
     private int _borderColor = 0;
     private boolean _showBorder;
+    private int _shadowSize;
+    private int _shadowColor;
+    private ToolTipShadow _shadow;
+
+    // Geometry and paints are only rebuilt when the size or one of the values above changes, never while drawing.
+    private final Path _path = new Path();
+    private final Path _borderPath = new Path();
+    private final RectF _rect = new RectF();
+    private final Paint _paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint _borderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
 
     public RoundedBackgroundView(Context context)
     {
         super(context);
+        init();
     }
 
     public RoundedBackgroundView(Context context, AttributeSet attrs)
     {
         super(context, attrs);
+        init();
     }
 
     public RoundedBackgroundView(Context context, AttributeSet attrs, int defStyleAttr)
     {
         super(context, attrs, defStyleAttr);
+        init();
+    }
+
+    private void init()
+    {
+        _borderPaint.setStyle(Paint.Style.STROKE);
+        updatePaints();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh)
+    {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updatePaths();
     }
 
     @Override
@@ -41,57 +67,111 @@ public class RoundedBackgroundView extends FrameLayout
     {
         super.onDraw(canvas);
 
-        int width = _width > 0 ? _width : 2;
-        int color = _color != 0 ? _color : Color.WHITE;
-        int borderColor = _borderColor != 0 ? _borderColor : Color.BLACK;
-        int radius = _radius >= 0 ? _radius : 20;
+        if (_shadow != null) {
+            // Drawn below the bounds of this view; the parent does not clip its children.
+            _shadow.draw(canvas, 0, _shadowSize, getWidth(), getHeight() + _shadowSize);
+        }
 
-        Path p = new Path();
-        RectF r = new RectF();
-        Paint paint = new Paint();
+        canvas.drawPath(_path, _paint);
 
-        r.set(0, 0, getWidth(), getHeight());
-        p.addRoundRect(r, radius, radius, Path.Direction.CCW);
+        if (_showBorder) {
+            canvas.drawPath(_borderPath, _borderPaint);
+        }
+    }
 
-        paint.setColor(color);
-        paint.setAntiAlias(true);
+    private void updatePaths()
+    {
+        int radius = _radius >= 0 ? _radius : 20;
 
-        canvas.drawPath(p, paint);
+        _path.reset();
+        _rect.set(0, 0, getWidth(), getHeight());
+        _path.addRoundRect(_rect, radius, radius, Path.Direction.CCW);
 
-        if (_showBorder) {
-            Path p2 = new Path();
-            r.set(1, 1, getWidth() - 1, getHeight() - 1);
-            p2.addRoundRect(r, radius, radius, Path.Direction.CCW);
-            paint.setStyle(Paint.Style.STROKE);
-            paint.setColor(borderColor);
-            paint.setStrokeWidth(width);
-            paint.setAntiAlias(true);
-            canvas.drawPath(p2, paint);
+        _borderPath.reset();
+        _rect.set(1, 1, getWidth() - 1, getHeight() - 1);
+        _borderPath.addRoundRect(_rect, radius, radius, Path.Direction.CCW);
+    }
+
+    private void updateShadow()
+    {
+        if (_shadowSize <= 0 || _shadowColor == 0) {
+            _shadow = null;
+            return;
         }
+
+        int radius = _radius >= 0 ? _radius : (int) (2 * getResources().getDisplayMetrics().density);
+        _shadow = ToolTipShadow.obtain(radius, _shadowColor);
+        setWillNotDraw(false);
+    }
+
+    private void updatePaints()
+    {
+        _paint.setColor(_color != 0 ? _color : Color.WHITE);
+        _borderPaint.setColor(_borderColor != 0 ? _borderColor : Color.BLACK);
+        _borderPaint.setStrokeWidth(_width > 0 ? _width : 2);
     }
 
     public void setColor(int color)
     {
-        _color = color;
+        if (_color != color) {
+            _color = color;
+            updatePaints();
+            invalidate();
+        }
     }
 
     public void setBorderWidth(int width)
     {
-        _width = width;
+        if (_width != width) {
+            _width = width;
+            updatePaints();
+            invalidate();
+        }
     }
 
     public void setRadius(int radius)
     {
-        _radius = radius;
+        if (_radius != radius) {
+            _radius = radius;
+            updatePaths();
+            updateShadow();
+            invalidate();
+        }
     }
 
     public void setBorderColor(int borderColor)
     {
-        _borderColor = borderColor;
+        if (_borderColor != borderColor) {
+            _borderColor = borderColor;
+            updatePaints();
+            invalidate();
+        }
+    }
+
+    /**
+     * Set the shadow that is drawn below this view, offset by shadowSize pixels. Use a size or color of 0 to
+     * hide the shadow. The parent must make room for the shadow below this view.
+     */
+    public void setShadow(int shadowSize, int shadowColor)
+    {
+        if (_shadowSize != shadowSize || _shadowColor != shadowColor) {
+            _shadowSize = shadowSize;
+            _shadowColor = shadowColor;
+            updateShadow();
+            invalidate();
+        }
+    }
+
+    public int getShadowSize()
+    {
+        return _shadow != null ? _shadowSize : 0;
     }
 
     public void setShowBorder(boolean showBorder)
     {
-        _showBorder = showBorder;
+        if (_showBorder != showBorder) {
+            _showBorder = showBorder;
+            invalidate();
+        }
     }
 }
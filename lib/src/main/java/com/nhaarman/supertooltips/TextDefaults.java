@@ -0,0 +1,90 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+
+/**
+ * The text size and color a ToolTip has when it does not set them, resolved from the theme the same way the
+ * TextView of the tooltip layout resolves them: the text appearance of the theme's text view style, overridden by
+ * that style's own values. Shared by {@link PreparedText} and {@link FlatToolTipRenderer}, so text prepared ahead of
+ * time or drawn in {@link ToolTipRelativeLayout#RENDER_MODE_FLAT} looks the same as text laid out by that TextView.
+ */
+final class TextDefaults
+{
+
+    /**
+     * The text size TextView falls back to when neither its style nor its text appearance sets one, in pixels.
+     */
+    private static final float FALLBACK_TEXT_SIZE = 15;
+
+    // obtainStyledAttributes requires the attributes in ascending order.
+    private static final int[] TEXT_VIEW_ATTRS = {android.R.attr.textAppearance, android.R.attr.textSize, android.R.attr.textColor};
+    private static final int INDEX_TEXT_APPEARANCE = 0;
+    private static final int INDEX_TEXT_SIZE = 1;
+    private static final int INDEX_TEXT_COLOR = 2;
+
+    private static final int[] TEXT_APPEARANCE_ATTRS = {android.R.attr.textSize, android.R.attr.textColor};
+    private static final int INDEX_APPEARANCE_TEXT_SIZE = 0;
+    private static final int INDEX_APPEARANCE_TEXT_COLOR = 1;
+
+    private final float mTextSize;
+    private final int mTextColor;
+
+    private TextDefaults(final float textSize, final int textColor)
+    {
+        mTextSize = textSize;
+        mTextColor = textColor;
+    }
+
+    /**
+     * Resolves the defaults from the theme of given Context. Safe to call from a background thread.
+     */
+    static TextDefaults of(final Context context)
+    {
+        float textSize = FALLBACK_TEXT_SIZE;
+        int textColor = Color.BLACK;
+
+        TypedArray style = context.obtainStyledAttributes(null, TEXT_VIEW_ATTRS, android.R.attr.textViewStyle, 0);
+        int appearanceResId = style.getResourceId(INDEX_TEXT_APPEARANCE, 0);
+        if (appearanceResId != 0) {
+            TypedArray appearance = context.obtainStyledAttributes(appearanceResId, TEXT_APPEARANCE_ATTRS);
+            textSize = appearance.getDimension(INDEX_APPEARANCE_TEXT_SIZE, textSize);
+            textColor = appearance.getColor(INDEX_APPEARANCE_TEXT_COLOR, textColor);
+            appearance.recycle();
+        }
+        textSize = style.getDimension(INDEX_TEXT_SIZE, textSize);
+        textColor = style.getColor(INDEX_TEXT_COLOR, textColor);
+        style.recycle();
+
+        return new TextDefaults(textSize, textColor);
+    }
+
+    /**
+     * @return the default text size, in pixels.
+     */
+    float getTextSize()
+    {
+        return mTextSize;
+    }
+
+    int getTextColor()
+    {
+        return mTextColor;
+    }
+}
@@ -15,16 +15,37 @@
  */
 package com.nhaarman.supertooltips;
 
+import android.graphics.Rect;
 import android.graphics.Typeface;
+import android.text.Spanned;
+import android.text.SpannedString;
 import android.view.View;
 
 public class ToolTip
 {
-    public enum AnimationType
-    {
-        FROM_MASTER_VIEW,
-        FROM_TOP,
-        NONE;
+    public enum AnimationType implements ToolTipAnimation
+    {
+        FROM_MASTER_VIEW {
+            @Override
+            public void getHiddenTransform(final ToolTipTransform shown, final Rect anchorBounds, final int toolTipWidth, final int toolTipHeight, final ToolTipTransform outHidden)
+            {
+                outHidden.set(anchorBounds.centerX() - toolTipWidth / 2, anchorBounds.exactCenterY() - toolTipHeight / 2f, 0, 0, 0);
+            }
+        },
+        FROM_TOP {
+            @Override
+            public void getHiddenTransform(final ToolTipTransform shown, final Rect anchorBounds, final int toolTipWidth, final int toolTipHeight, final ToolTipTransform outHidden)
+            {
+                outHidden.set(shown.translationX, 0, 0, 0, 0);
+            }
+        },
+        NONE {
+            @Override
+            public void getHiddenTransform(final ToolTipTransform shown, final Rect anchorBounds, final int toolTipWidth, final int toolTipHeight, final ToolTipTransform outHidden)
+            {
+                outHidden.set(shown);
+            }
+        };
 
     }
 
@@ -44,6 +65,8 @@ public class ToolTip
     private long mAnimationDuration;
     private View mContentView;
     private AnimationType mAnimationType;
+    private ToolTipAnimation mAnimation;
+    private PreparedText mPreparedText;
     private boolean mShouldShowShadow;
     private Typeface mTypeface;
     private int mXOffSet;
@@ -51,6 +74,9 @@ public class ToolTip
     private boolean mShowBelow;
     private boolean mShowAbove;
 
+    private boolean mBuilt;
+    private ToolTipStyle mStyle;
+
     /**
      * Creates a new ToolTip without any values.
      */
@@ -67,6 +93,101 @@ public class ToolTip
         mShowBelow = false;
     }
 
+    /**
+     * Creates a copy of given ToolTip, which is built if given build is true.
+     */
+    private ToolTip(final ToolTip source, final boolean build)
+    {
+        mText = source.mText instanceof Spanned ? new SpannedString(source.mText) : source.mText;
+        mTextResId = source.mTextResId;
+        mColor = source.mColor;
+        mBorderColor = source.mBorderColor;
+        mTextColor = source.mTextColor;
+        mShadowColor = source.mShadowColor;
+        mShowBorder = source.mShowBorder;
+        mBorderWidth = source.mBorderWidth;
+        mBorderRadius = source.mBorderRadius;
+        mYOffset = source.mYOffset;
+        mHorizontalPadding = source.mHorizontalPadding;
+        mVerticalPadding = source.mVerticalPadding;
+        mTipArcSize = source.mTipArcSize;
+        mAnimationDuration = source.mAnimationDuration;
+        mAnimationType = source.mAnimationType;
+        mAnimation = source.mAnimation;
+        mPreparedText = source.mPreparedText;
+        mShouldShowShadow = source.mShouldShowShadow;
+        mTypeface = source.mTypeface;
+        mXOffSet = source.mXOffSet;
+        mShadowSize = source.mShadowSize;
+        mShowBelow = source.mShowBelow;
+        mShowAbove = source.mShowAbove;
+
+        if (build) {
+            mBuilt = true;
+            mStyle = source.mStyle != null ? source.mStyle : ToolTipStyle.of(this);
+        }
+        else {
+            mContentView = source.mContentView;
+        }
+    }
+
+    /**
+     * Creates an immutable copy of this ToolTip, which can be cached and shared between screens, and built on any
+     * thread. Its visual values are interned into a {@link ToolTipStyle} that is shared with all built ToolTips
+     * that look the same. Calling any of the with methods on the copy throws an IllegalStateException.
+     *
+     * @return the built ToolTip, or this ToolTip if it was built already.
+     *
+     * @throws IllegalStateException
+     *             if a content View is set, as a built ToolTip must not hold on to a View.
+     */
+    public ToolTip build()
+    {
+        if (mBuilt) {
+            return this;
+        }
+        if (mContentView != null) {
+            throw new IllegalStateException("A ToolTip with a content View can not be built.");
+        }
+        return new ToolTip(this, true);
+    }
+
+    /**
+     * @return true if this ToolTip was created by {@link #build()}, and can not be changed.
+     */
+    public boolean isBuilt()
+    {
+        return mBuilt;
+    }
+
+    /**
+     * @return the shared style of this ToolTip if it is built, or null otherwise.
+     */
+    public ToolTipStyle getStyle()
+    {
+        return mStyle;
+    }
+
+    /**
+     * Creates a copy of this ToolTip that holds given prepared text, leaving this ToolTip untouched. The copy is
+     * built if this ToolTip is.
+     */
+    ToolTip copyWithPreparedText(final PreparedText preparedText)
+    {
+        ToolTip copy = new ToolTip(this, mBuilt);
+        copy.mText = preparedText.getText();
+        copy.mTextResId = 0;
+        copy.mPreparedText = preparedText;
+        return copy;
+    }
+
+    private void checkNotBuilt()
+    {
+        if (mBuilt) {
+            throw new IllegalStateException("This ToolTip was built, and can not be changed.");
+        }
+    }
+
     /**
      * Set the text to show. Has no effect when a content View is set using setContentView().
      *
@@ -74,8 +195,26 @@ public class ToolTip
      */
     public ToolTip withText(final CharSequence text)
     {
+        checkNotBuilt();
         mText = text;
         mTextResId = 0;
+        mPreparedText = null;
+        return this;
+    }
+
+    /**
+     * Set the text to show, measured ahead of time by {@link PreparedText}. The ToolTipView draws it without
+     * measuring it again, as long as it fits. Setting a typeface or text color afterwards drops the prepared text.
+     * Has no effect when a content View is set using setContentView().
+     *
+     * @return this ToolTip to build upon.
+     */
+    public ToolTip withPreparedText(final PreparedText preparedText)
+    {
+        checkNotBuilt();
+        mText = preparedText.getText();
+        mTextResId = 0;
+        mPreparedText = preparedText;
         return this;
     }
 
@@ -86,8 +225,10 @@ public class ToolTip
      */
     public ToolTip withText(final int resId)
     {
+        checkNotBuilt();
         mTextResId = resId;
         mText = null;
+        mPreparedText = null;
         return this;
     }
 
@@ -98,8 +239,10 @@ public class ToolTip
      */
     public ToolTip withText(final int resId, final Typeface tf)
     {
+        checkNotBuilt();
         mTextResId = resId;
         mText = null;
+        mPreparedText = null;
         withTypeface(tf);
         return this;
     }
@@ -111,6 +254,7 @@ public class ToolTip
      */
     public ToolTip withColor(final int color)
     {
+        checkNotBuilt();
         mColor = color;
         return this;
     }
@@ -122,6 +266,7 @@ public class ToolTip
      */
     public ToolTip withBorder()
     {
+        checkNotBuilt();
         mShowBorder = true;
         return this;
     }
@@ -133,6 +278,7 @@ public class ToolTip
      */
     public ToolTip withBorderColor(int color)
     {
+        checkNotBuilt();
         mBorderColor = color;
         return this;
     }
@@ -144,6 +290,7 @@ public class ToolTip
      */
     public ToolTip withBorderWidth(int width)
     {
+        checkNotBuilt();
         mBorderWidth = width;
         return this;
     }
@@ -155,6 +302,7 @@ public class ToolTip
      */
     public ToolTip withRadius(int radius)
     {
+        checkNotBuilt();
         mBorderRadius = radius;
         return this;
     }
@@ -166,7 +314,9 @@ public class ToolTip
      */
     public ToolTip withTextColor(final int color)
     {
+        checkNotBuilt();
         mTextColor = color;
+        mPreparedText = null;
         return this;
     }
 
@@ -177,6 +327,7 @@ public class ToolTip
      */
     public ToolTip withContentView(final View view)
     {
+        checkNotBuilt();
         mContentView = view;
         return this;
     }
@@ -188,7 +339,9 @@ public class ToolTip
      */
     public ToolTip withAnimationType(final AnimationType animationType)
     {
+        checkNotBuilt();
         mAnimationType = animationType;
+        mAnimation = null;
         return this;
     }
 
@@ -199,10 +352,24 @@ public class ToolTip
      */
     public ToolTip withAnimationType(AnimationType fromMasterView, long duration)
     {
+        checkNotBuilt();
         mAnimationDuration = duration;
         return withAnimationType(fromMasterView);
     }
 
+    /**
+     * Set a custom animation for the ToolTip. Overrides the animation type, until the next call to
+     * withAnimationType().
+     *
+     * @return this ToolTip to build upon.
+     */
+    public ToolTip withAnimation(final ToolTipAnimation animation)
+    {
+        checkNotBuilt();
+        mAnimation = animation;
+        return this;
+    }
+
     /**
      * Set to show a shadow below the ToolTip.
      *
@@ -210,6 +377,7 @@ public class ToolTip
      */
     public ToolTip withShadow()
     {
+        checkNotBuilt();
         mShouldShowShadow = true;
         return this;
     }
@@ -221,6 +389,7 @@ public class ToolTip
      */
     public ToolTip withoutShadow()
     {
+        checkNotBuilt();
         mShouldShowShadow = false;
         return this;
     }
@@ -232,6 +401,7 @@ public class ToolTip
      */
     public ToolTip withShadowColor(int shadowColor)
     {
+        checkNotBuilt();
         mShadowColor = shadowColor;
         return this;
     }
@@ -243,6 +413,7 @@ public class ToolTip
      */
     public ToolTip withYOffset(int offset)
     {
+        checkNotBuilt();
         mYOffset = offset;
         return this;
     }
@@ -254,6 +425,7 @@ public class ToolTip
      */
     public ToolTip withHorizontalPadding(int padding)
     {
+        checkNotBuilt();
         mHorizontalPadding = padding;
         return this;
     }
@@ -265,6 +437,7 @@ public class ToolTip
      */
     public ToolTip withVerticalPadding(int padding)
     {
+        checkNotBuilt();
         mVerticalPadding = padding;
         return this;
     }
@@ -276,6 +449,7 @@ public class ToolTip
      */
     public ToolTip withTipArcSize(int i)
     {
+        checkNotBuilt();
         mTipArcSize = i;
         return this;
     }
@@ -287,6 +461,7 @@ public class ToolTip
      */
     public ToolTip withXOffset(int i)
     {
+        checkNotBuilt();
         mXOffSet = i;
         return this;
     }
@@ -298,6 +473,7 @@ public class ToolTip
      */
     public ToolTip withShadowSize(int v)
     {
+        checkNotBuilt();
         mShadowSize = v;
         return this;
     }
@@ -309,6 +485,7 @@ public class ToolTip
      */
     public ToolTip requestShowAbove()
     {
+        checkNotBuilt();
         mShowAbove = true;
         mShowBelow = false;
         return this;
@@ -321,6 +498,7 @@ public class ToolTip
      */
     public ToolTip requestShowBelow()
     {
+        checkNotBuilt();
         mShowAbove = false;
         mShowBelow = true;
         return this;
@@ -331,7 +509,9 @@ public class ToolTip
      */
     public void withTypeface(final Typeface typeface)
     {
+        checkNotBuilt();
         mTypeface = typeface;
+        mPreparedText = null;
     }
 
     public CharSequence getText()
@@ -379,11 +559,24 @@ public class ToolTip
         return mContentView;
     }
 
+    public PreparedText getPreparedText()
+    {
+        return mPreparedText;
+    }
+
     public AnimationType getAnimationType()
     {
         return mAnimationType;
     }
 
+    /**
+     * @return the custom animation if one was set, or the animation type otherwise.
+     */
+    public ToolTipAnimation getAnimation()
+    {
+        return mAnimation != null ? mAnimation : mAnimationType;
+    }
+
     public int getYOffset()
     {
         return mYOffset;
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.graphics.Rect;
+
+/**
+ * Describes how a ToolTipView appears and disappears. The ToolTipView is animated between its hidden transform and
+ * its shown transform, in a single animator. {@link ToolTip.AnimationType} provides the default implementations.
+ */
+public interface ToolTipAnimation
+{
+
+    /**
+     * Computes the transform of the ToolTipView when it is hidden: where the appearance animation starts, and where
+     * the disappearance animation ends.
+     *
+     * @param shown
+     *            the transform of the ToolTipView when it is fully shown. Must not be modified.
+     * @param anchorBounds
+     *            the bounds of the anchor View, relative to the ToolTipRelativeLayout.
+     * @param toolTipWidth
+     *            the width of the ToolTip's content.
+     * @param toolTipHeight
+     *            the height of the ToolTipView.
+     * @param outHidden
+     *            the transform to write the hidden state to.
+     */
+    void getHiddenTransform(ToolTipTransform shown, Rect anchorBounds, int toolTipWidth, int toolTipHeight, ToolTipTransform outHidden);
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ValueAnimator;
+import android.view.View;
+
+/**
+ * Animates a View between its hidden and its shown {@link ToolTipTransform} with a single ValueAnimator, which is
+ * reused for every animation. Showing plays the animator forwards, hiding plays it backwards, so either one can
+ * reverse the other from its current fraction. The View is given a hardware layer only while an animation runs.
+ */
+final class ToolTipAnimator extends AnimatorListenerAdapter implements ValueAnimator.AnimatorUpdateListener
+{
+
+    private static final long DEFAULT_DURATION = 300;
+
+    private final View mView;
+    private final ValueAnimator mAnimator = ValueAnimator.ofFloat(0f, 1f);
+    private final ToolTipTransform mHidden = new ToolTipTransform();
+    private final ToolTipTransform mShown = new ToolTipTransform();
+    private final ToolTipTransform mCurrent = new ToolTipTransform();
+
+    private boolean mHiding;
+    private boolean mHardwareLayerEnabled = true;
+
+    private int mPreviousLayerType = View.LAYER_TYPE_NONE;
+    private boolean mLayerEnabled;
+
+    ToolTipAnimator(final View view)
+    {
+        mView = view;
+        mAnimator.addListener(this);
+        mAnimator.addUpdateListener(this);
+    }
+
+    /**
+     * @return the transform of the View when it is hidden. May be changed while an animation runs.
+     */
+    ToolTipTransform getHidden()
+    {
+        return mHidden;
+    }
+
+    /**
+     * @return the transform of the View when it is shown. May be changed while an animation runs.
+     */
+    ToolTipTransform getShown()
+    {
+        return mShown;
+    }
+
+    /**
+     * Animates to the shown transform. Reverses a running hide animation from its current fraction, and does
+     * nothing if a show animation is already running.
+     *
+     * @param duration
+     *            the duration in milliseconds, or 0 for the default duration.
+     */
+    void show(final long duration)
+    {
+        if (mAnimator.isStarted()) {
+            if (mHiding) {
+                mHiding = false;
+                mAnimator.reverse();
+            }
+            return;
+        }
+
+        mHiding = false;
+        mAnimator.setDuration(duration > 0 ? duration : DEFAULT_DURATION);
+        mHidden.applyTo(mView);
+        mAnimator.start();
+    }
+
+    /**
+     * Animates to the hidden transform. Reverses a running show animation from its current fraction, and does
+     * nothing if a hide animation is already running.
+     *
+     * @param duration
+     *            the duration in milliseconds, or 0 for the default duration.
+     */
+    void hide(final long duration)
+    {
+        if (mAnimator.isStarted()) {
+            if (!mHiding) {
+                mHiding = true;
+                mAnimator.reverse();
+            }
+            return;
+        }
+
+        mHiding = true;
+        mAnimator.setDuration(duration > 0 ? duration : DEFAULT_DURATION);
+        mShown.applyTo(mView);
+        // Not running, so this plays the animator backwards from its end.
+        mAnimator.reverse();
+    }
+
+    /**
+     * Set whether the View gets a hardware layer while an animation runs. Takes effect from the next animation.
+     */
+    void setHardwareLayerEnabled(final boolean enabled)
+    {
+        mHardwareLayerEnabled = enabled;
+    }
+
+    void cancel()
+    {
+        mAnimator.cancel();
+    }
+
+    boolean isRunning()
+    {
+        return mAnimator.isRunning();
+    }
+
+    void addListener(final Animator.AnimatorListener listener)
+    {
+        mAnimator.addListener(listener);
+    }
+
+    void removeListener(final Animator.AnimatorListener listener)
+    {
+        mAnimator.removeListener(listener);
+    }
+
+    void addUpdateListener(final ValueAnimator.AnimatorUpdateListener listener)
+    {
+        mAnimator.addUpdateListener(listener);
+    }
+
+    @Override
+    public void onAnimationStart(final Animator animation)
+    {
+        if (mHardwareLayerEnabled && mView.getLayerType() != View.LAYER_TYPE_HARDWARE) {
+            mPreviousLayerType = mView.getLayerType();
+            mView.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+            mLayerEnabled = true;
+        }
+    }
+
+    @Override
+    public void onAnimationUpdate(final ValueAnimator animation)
+    {
+        mCurrent.interpolate(mHidden, mShown, animation.getAnimatedFraction());
+        mCurrent.applyTo(mView);
+    }
+
+    @Override
+    public void onAnimationEnd(final Animator animation)
+    {
+        if (mLayerEnabled) {
+            mView.setLayerType(mPreviousLayerType, null);
+            mLayerEnabled = false;
+        }
+    }
+}
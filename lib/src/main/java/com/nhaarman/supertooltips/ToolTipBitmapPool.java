@@ -0,0 +1,89 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.util.SparseArray;
+
+import java.util.ArrayDeque;
+
+/**
+ * A pool of snapshot bitmaps for ToolTipViews. Bitmap sizes are rounded up to a multiple of {@link #BUCKET_SIZE}
+ * pixels, so ToolTips of similar sizes share bitmaps. Must only be used from the main thread.
+ */
+final class ToolTipBitmapPool
+{
+
+    private static final int BUCKET_SIZE = 64;
+    private static final int MAX_POOLED_BYTES = 4 * 1024 * 1024;
+
+    private static final SparseArray<ArrayDeque<Bitmap>> POOL = new SparseArray<>();
+    private static int sPooledBytes;
+
+    private ToolTipBitmapPool()
+    {
+    }
+
+    /**
+     * Returns a transparent bitmap that is at least as large as given size.
+     */
+    static Bitmap acquire(final int width, final int height)
+    {
+        int bucketWidth = toBucket(width);
+        int bucketHeight = toBucket(height);
+
+        ArrayDeque<Bitmap> bitmaps = POOL.get(getKey(bucketWidth, bucketHeight));
+        Bitmap bitmap = bitmaps != null ? bitmaps.pollFirst() : null;
+        if (bitmap == null) {
+            return Bitmap.createBitmap(bucketWidth, bucketHeight, Bitmap.Config.ARGB_8888);
+        }
+
+        sPooledBytes -= bitmap.getByteCount();
+        bitmap.eraseColor(Color.TRANSPARENT);
+        return bitmap;
+    }
+
+    /**
+     * Keeps given bitmap for reuse, unless the pool is full. The bitmap must not be used afterwards.
+     */
+    static void release(final Bitmap bitmap)
+    {
+        if (bitmap.isRecycled() || sPooledBytes + bitmap.getByteCount() > MAX_POOLED_BYTES) {
+            return;
+        }
+
+        int key = getKey(bitmap.getWidth(), bitmap.getHeight());
+        ArrayDeque<Bitmap> bitmaps = POOL.get(key);
+        if (bitmaps == null) {
+            bitmaps = new ArrayDeque<>(2);
+            POOL.put(key, bitmaps);
+        }
+
+        bitmaps.offerFirst(bitmap);
+        sPooledBytes += bitmap.getByteCount();
+    }
+
+    private static int toBucket(final int size)
+    {
+        return Math.max(1, (size + BUCKET_SIZE - 1) / BUCKET_SIZE) * BUCKET_SIZE;
+    }
+
+    private static int getKey(final int bucketWidth, final int bucketHeight)
+    {
+        return bucketWidth / BUCKET_SIZE << 16 | bucketHeight / BUCKET_SIZE;
+    }
+}
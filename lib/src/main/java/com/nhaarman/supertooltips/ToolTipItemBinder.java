@@ -0,0 +1,260 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.util.LongSparseArray;
+import android.view.View;
+
+/**
+ * Binds ToolTips to the items of a ListView or RecyclerView by their stable item id, instead of to the recycled
+ * row Views. A {@link ToolTipView} only exists while the row View of its item is attached: it is dismissed and
+ * returned to the pool of the {@link ToolTipRelativeLayout} when the row scrolls off, and shown again when the item
+ * is bound to a row once more. Memory and scrolling cost therefore depend on the visible items, not on the amount
+ * of ToolTips.</p>
+ * Call {@link #bindItemView(View, long)} from the adapter for every item View that is bound, such as in
+ * {@code getView()} or {@code onBindViewHolder()}. Must only be used from the main thread.
+ */
+public class ToolTipItemBinder
+{
+
+    private final ToolTipRelativeLayout mToolTipRelativeLayout;
+
+    private final LongSparseArray<ToolTip> mToolTips = new LongSparseArray<>();
+    private final LongSparseArray<View> mItemViews = new LongSparseArray<>();
+    private final LongSparseArray<ToolTipView> mToolTipViews = new LongSparseArray<>();
+
+    private final ItemViewAttachListener mItemViewAttachListener = new ItemViewAttachListener();
+    private final ToolTipViewClickedListener mToolTipViewClickedListener = new ToolTipViewClickedListener();
+    private final ToolTipViewRemovedListener mToolTipViewRemovedListener = new ToolTipViewRemovedListener();
+    private ToolTipView.OnToolTipViewClickedListener mListener;
+
+    public ToolTipItemBinder(final ToolTipRelativeLayout toolTipRelativeLayout)
+    {
+        mToolTipRelativeLayout = toolTipRelativeLayout;
+    }
+
+    /**
+     * Set the ToolTip to show for the item with given id, replacing any previous one. It is shown right away if
+     * the item is bound to an attached View.
+     */
+    public void setToolTip(final long itemId, final ToolTip toolTip)
+    {
+        mToolTips.put(itemId, toolTip);
+        dismissToolTipView(itemId);
+
+        View itemView = mItemViews.get(itemId);
+        if (itemView != null && itemView.getWindowToken() != null) {
+            showToolTipView(itemId, itemView);
+        }
+    }
+
+    /**
+     * Removes the ToolTip of the item with given id, and dismisses its ToolTipView if it is shown.
+     */
+    public void removeToolTip(final long itemId)
+    {
+        mToolTips.remove(itemId);
+
+        ToolTipView toolTipView = mToolTipViews.get(itemId);
+        if (toolTipView != null) {
+            mToolTipViews.remove(itemId);
+            toolTipView.setOnToolTipViewRemovedListener(null);
+            toolTipView.remove();
+        }
+    }
+
+    /**
+     * Removes all ToolTips, and forgets all bound item Views.
+     */
+    public void clear()
+    {
+        for (int i = mToolTipViews.size() - 1; i >= 0; --i) {
+            ToolTipView toolTipView = mToolTipViews.valueAt(i);
+            toolTipView.setOnToolTipViewRemovedListener(null);
+            toolTipView.remove();
+        }
+        mToolTipViews.clear();
+        mToolTips.clear();
+
+        for (int i = mItemViews.size() - 1; i >= 0; --i) {
+            View itemView = mItemViews.valueAt(i);
+            itemView.removeOnAttachStateChangeListener(mItemViewAttachListener);
+            itemView.setTag(R.id.tooltip_item_id, null);
+        }
+        mItemViews.clear();
+    }
+
+    /**
+     * @return the ToolTipView that is currently shown for the item with given id, or null if there is none.
+     */
+    public ToolTipView getToolTipView(final long itemId)
+    {
+        return mToolTipViews.get(itemId);
+    }
+
+    /**
+     * Set a listener for clicks on any of the ToolTipViews. A clicked ToolTipView is dismissed, and its ToolTip
+     * is removed.
+     */
+    public void setOnToolTipViewClickedListener(final ToolTipView.OnToolTipViewClickedListener listener)
+    {
+        mListener = listener;
+    }
+
+    /**
+     * Tells this binder that given View now shows the item with given id. If the View showed another item before,
+     * the ToolTip of that item is dismissed.
+     */
+    public void bindItemView(final View itemView, final long itemId)
+    {
+        Object previousItemId = itemView.getTag(R.id.tooltip_item_id);
+        if (previousItemId == null) {
+            itemView.addOnAttachStateChangeListener(mItemViewAttachListener);
+        }
+        else if ((Long) previousItemId == itemId && mItemViews.get(itemId) == itemView) {
+            return;
+        }
+        else {
+            forgetItemView((Long) previousItemId, itemView);
+        }
+
+        View previousItemView = mItemViews.get(itemId);
+        if (previousItemView != null) {
+            // The item moved to another View, for example during a change animation.
+            previousItemView.removeOnAttachStateChangeListener(mItemViewAttachListener);
+            previousItemView.setTag(R.id.tooltip_item_id, null);
+            dismissToolTipView(itemId);
+        }
+
+        itemView.setTag(R.id.tooltip_item_id, itemId);
+        mItemViews.put(itemId, itemView);
+        if (itemView.getWindowToken() != null) {
+            showToolTipView(itemId, itemView);
+        }
+    }
+
+    /**
+     * Tells this binder that given View no longer shows an item, for example from {@code onViewRecycled()}. This is
+     * optional: ToolTipViews are dismissed as soon as their item View is detached anyway.
+     */
+    public void unbindItemView(final View itemView)
+    {
+        Object itemId = itemView.getTag(R.id.tooltip_item_id);
+        if (itemId == null) {
+            return;
+        }
+
+        itemView.removeOnAttachStateChangeListener(mItemViewAttachListener);
+        itemView.setTag(R.id.tooltip_item_id, null);
+        forgetItemView((Long) itemId, itemView);
+    }
+
+    private void forgetItemView(final long itemId, final View itemView)
+    {
+        if (mItemViews.get(itemId) == itemView) {
+            mItemViews.remove(itemId);
+            dismissToolTipView(itemId);
+        }
+    }
+
+    private void showToolTipView(final long itemId, final View itemView)
+    {
+        ToolTip toolTip = mToolTips.get(itemId);
+        if (toolTip == null || mToolTipViews.get(itemId) != null) {
+            return;
+        }
+
+        ToolTipView toolTipView = mToolTipRelativeLayout.showToolTipForAnchor(toolTip, Anchor.ofView(itemView));
+        toolTipView.setAnchorTrackingEnabled(true);
+        // The click listener dismisses the ToolTipView itself, so it still finds the item of the ToolTipView.
+        toolTipView.setDismissOnClick(false);
+        toolTipView.setOnToolTipViewClickedListener(mToolTipViewClickedListener);
+        // The ToolTipView may also be removed by its anchor, its host or the app, which must not leave it behind.
+        toolTipView.setOnToolTipViewRemovedListener(mToolTipViewRemovedListener);
+        mToolTipViews.put(itemId, toolTipView);
+    }
+
+    /**
+     * Dismisses the ToolTipView of given item without animation, so it returns to the pool right away.
+     */
+    private void dismissToolTipView(final long itemId)
+    {
+        ToolTipView toolTipView = mToolTipViews.get(itemId);
+        if (toolTipView != null) {
+            mToolTipViews.remove(itemId);
+            toolTipView.setOnToolTipViewRemovedListener(null);
+            toolTipView.removeImmediately();
+        }
+    }
+
+    private class ItemViewAttachListener implements View.OnAttachStateChangeListener
+    {
+
+        @Override
+        public void onViewAttachedToWindow(final View view)
+        {
+            Object itemId = view.getTag(R.id.tooltip_item_id);
+            if (itemId != null && mItemViews.get((Long) itemId) == view) {
+                showToolTipView((Long) itemId, view);
+            }
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(final View view)
+        {
+            Object itemId = view.getTag(R.id.tooltip_item_id);
+            if (itemId != null && mItemViews.get((Long) itemId) == view) {
+                dismissToolTipView((Long) itemId);
+            }
+        }
+    }
+
+    private class ToolTipViewClickedListener implements ToolTipView.OnToolTipViewClickedListener
+    {
+
+        @Override
+        public void onToolTipViewClicked(final ToolTipView toolTipView)
+        {
+            int index = mToolTipViews.indexOfValue(toolTipView);
+            if (index >= 0) {
+                mToolTips.remove(mToolTipViews.keyAt(index));
+                mToolTipViews.removeAt(index);
+            }
+            toolTipView.setOnToolTipViewRemovedListener(null);
+            toolTipView.remove();
+
+            if (mListener != null) {
+                mListener.onToolTipViewClicked(toolTipView);
+            }
+        }
+    }
+
+    /**
+     * Forgets a ToolTipView that was removed by anything but this binder, so its item shows it again once bound.
+     */
+    private class ToolTipViewRemovedListener implements ToolTipView.OnToolTipViewRemovedListener
+    {
+
+        @Override
+        public void onToolTipViewRemoved(final ToolTipView toolTipView)
+        {
+            int index = mToolTipViews.indexOfValue(toolTipView);
+            if (index >= 0) {
+                mToolTipViews.removeAt(index);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+/**
+ * Receives timings of the lifecycle of ToolTipViews shown by a {@link ToolTipRelativeLayout}. Install it using
+ * {@link ToolTipRelativeLayout#setToolTipMetrics(ToolTipMetrics)}. Nothing is measured while no ToolTipMetrics is
+ * installed.</p>
+ * All methods are called on the main thread. All durations are in nanoseconds.
+ */
+public interface ToolTipMetrics
+{
+
+    /**
+     * Called when a new ToolTipView had to be inflated, because no pooled ToolTipView was available.
+     */
+    void onToolTipViewInflated(long durationNanos);
+
+    /**
+     * Called when a {@link ToolTip} has been applied to a ToolTipView.
+     */
+    void onToolTipBound(ToolTipView toolTipView, long durationNanos);
+
+    /**
+     * Called when given ToolTipView is drawn for the first time after it was shown.
+     *
+     * @param sinceShowNanos
+     *            the time between the call to show the ToolTipView and its first draw.
+     * @param layoutPasses
+     *            the amount of layout passes before the first draw that reached the ToolTipView: its own, and those
+     *            of its ToolTipRelativeLayout, whether or not they changed the ToolTipView's bounds.
+     */
+    void onToolTipFirstDraw(ToolTipView toolTipView, long sinceShowNanos, int layoutPasses);
+
+    /**
+     * Called when the appearance animation of given ToolTipView ends.
+     *
+     * @param droppedFrames
+     *            the amount of frames that were skipped while the animation ran.
+     */
+    void onAppearanceAnimationEnd(ToolTipView toolTipView, long durationNanos, int droppedFrames);
+
+    /**
+     * Called when the disappearance animation of given ToolTipView ends.
+     *
+     * @param droppedFrames
+     *            the amount of frames that were skipped while the animation ran.
+     */
+    void onDisappearanceAnimationEnd(ToolTipView toolTipView, long durationNanos, int droppedFrames);
+}
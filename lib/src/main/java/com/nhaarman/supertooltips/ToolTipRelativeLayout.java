@@ -19,10 +19,18 @@ import android.annotation.TargetApi;
 import android.app.ActionBar;
 import android.app.Activity;
 import android.content.Context;
+import android.content.ContextWrapper;
 import android.content.res.Resources;
+import android.graphics.Rect;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.AttributeSet;
+import android.util.Log;
+import android.view.Choreographer;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.RelativeLayout;
 
 import com.nhaarman.supertooltips.exception.NoOverflowMenuRuntimeException;
@@ -32,6 +40,8 @@ import com.nhaarman.supertooltips.exception.ViewNotFoundRuntimeException;
 public class ToolTipRelativeLayout extends RelativeLayout
 {
 
+    private static final String TAG = "ToolTipRelativeLayout";
+
     public static final String ACTION_BAR_TITLE = "action_bar_title";
     public static final String ID = "id";
     public static final String ANDROID = "android";
@@ -39,19 +49,142 @@ public class ToolTipRelativeLayout extends RelativeLayout
     public static final String ACTION_MENU_VIEW = "ActionMenuView";
     public static final String OVERFLOW_MENU_BUTTON = "OverflowMenuButton";
 
+    /**
+     * Render mode in which each ToolTip is a small hierarchy of Views. Supports custom content Views.
+     */
+    public static final int RENDER_MODE_VIEWS = 0;
+
+    /**
+     * Render mode in which each ToolTip is a single View that draws its shadow, bubble, pointer and text itself.
+     * ToolTips with a custom content View are still shown in {@link #RENDER_MODE_VIEWS}.
+     */
+    public static final int RENDER_MODE_FLAT = 1;
+
+    private final ToolTipViewPool mToolTipViewPool;
+    private int mRenderMode = RENDER_MODE_VIEWS;
+    private ToolTipMetrics mToolTipMetrics;
+
+    private final RepositionFrameCallback mRepositionFrameCallback = new RepositionFrameCallback();
+    private boolean mRepositionScheduled;
+    private boolean mRepositionAll;
+
+    private boolean mAnchorTrackingEnabled;
+    private final ScrollChangedListener mScrollChangedListener = new ScrollChangedListener();
+    private ViewTreeObserver mObservedViewTreeObserver;
+
+    /**
+     * The amount of frames without anchor movement after which following anchors stops.
+     */
+    private static final int FOLLOW_IDLE_FRAME_COUNT = 3;
+
+    private final FollowFrameCallback mFollowFrameCallback = new FollowFrameCallback();
+    private final FollowPreDrawListener mFollowPreDrawListener = new FollowPreDrawListener();
+    private boolean mFollowing;
+    private int mFollowIdleFrames;
+    private final int[] mScreenPosition = new int[2];
+    private final Rect mDisplayFrame = new Rect();
+    private boolean mDisplayFrameValid;
+
+    private Handler mMainHandler;
+
+    private boolean mDedicatedHost;
+    private boolean mInLayout;
+    private boolean mToolTipLayoutScheduled;
+    private final ToolTipLayoutFrameCallback mToolTipLayoutFrameCallback = new ToolTipLayoutFrameCallback();
+    private final DetachedTeardownRunnable mDetachedTeardownRunnable = new DetachedTeardownRunnable();
+
     public ToolTipRelativeLayout(final Context context)
     {
         super(context);
+        mToolTipViewPool = new ToolTipViewPool(context);
     }
 
     public ToolTipRelativeLayout(final Context context, final AttributeSet attrs)
     {
         super(context, attrs);
+        mToolTipViewPool = new ToolTipViewPool(context);
     }
 
     public ToolTipRelativeLayout(final Context context, final AttributeSet attrs, final int defStyle)
     {
         super(context, attrs, defStyle);
+        mToolTipViewPool = new ToolTipViewPool(context);
+    }
+
+    /**
+     * Returns the ToolTipRelativeLayout that covers the content of given Activity, adding one on top of the content
+     * if there is none yet. No changes to the layout XML of the Activity are needed.</p>
+     * The returned layout is dedicated to ToolTips: since ToolTipViews never change its size, a ToolTipView that is
+     * added, removed or changed is measured and laid out by itself, without a layout pass of the whole window.
+     */
+    public static ToolTipRelativeLayout attach(final Activity activity)
+    {
+        final ViewGroup contentView = (ViewGroup) activity.findViewById(android.R.id.content);
+
+        View host = contentView.findViewById(R.id.tooltip_host);
+        if (host instanceof ToolTipRelativeLayout) {
+            return (ToolTipRelativeLayout) host;
+        }
+
+        ToolTipRelativeLayout toolTipRelativeLayout = new ToolTipRelativeLayout(activity);
+        toolTipRelativeLayout.setId(R.id.tooltip_host);
+        toolTipRelativeLayout.mDedicatedHost = true;
+        contentView.addView(toolTipRelativeLayout, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        return toolTipRelativeLayout;
+    }
+
+    /**
+     * Returns the pool which holds dismissed {@link ToolTipView}s for reuse. Pooling is off until its maximum size
+     * is set. Use it to enable pooling, prewarm ToolTipViews, or read its hit, miss and eviction counts.
+     */
+    public ToolTipViewPool getToolTipViewPool()
+    {
+        return mToolTipViewPool;
+    }
+
+    /**
+     * Set how new ToolTipViews are rendered. Defaults to {@link #RENDER_MODE_VIEWS}. ToolTipViews that are already
+     * shown keep their render mode.
+     *
+     * @param renderMode
+     *            either {@link #RENDER_MODE_VIEWS} or {@link #RENDER_MODE_FLAT}.
+     */
+    public void setRenderMode(final int renderMode)
+    {
+        mRenderMode = renderMode;
+        mToolTipViewPool.setRenderMode(renderMode);
+    }
+
+    public int getRenderMode()
+    {
+        return mRenderMode;
+    }
+
+    /**
+     * Set the listener that receives lifecycle timings of ToolTipViews shown from now on, or null to stop measuring.
+     */
+    public void setToolTipMetrics(final ToolTipMetrics toolTipMetrics)
+    {
+        mToolTipMetrics = toolTipMetrics;
+    }
+
+    public ToolTipMetrics getToolTipMetrics()
+    {
+        return mToolTipMetrics;
+    }
+
+    /**
+     * Set whether new ToolTipViews follow their anchor View when it is scrolled or laid out again. Disabled by
+     * default. See {@link ToolTipView#setAnchorTrackingEnabled(boolean)} to change this for a single ToolTipView.
+     */
+    public void setAnchorTrackingEnabled(final boolean enabled)
+    {
+        mAnchorTrackingEnabled = enabled;
+    }
+
+    public boolean isAnchorTrackingEnabled()
+    {
+        return mAnchorTrackingEnabled;
     }
 
     /**
@@ -67,10 +200,103 @@ public class ToolTipRelativeLayout extends RelativeLayout
      */
     public ToolTipView showToolTipForView(final ToolTip toolTip, final View view)
     {
-        final ToolTipView toolTipView = new ToolTipView(getContext());
-        toolTipView.setToolTip(toolTip, view);
-        addView(toolTipView);
-        return toolTipView;
+        return showToolTip(toolTip, Anchor.ofView(view));
+    }
+
+    /**
+     * Shows a {@link ToolTipView} based on given {@link ToolTip} at the proper
+     * location relative to given {@link Anchor}. Use this to point at content
+     * that has no View of its own, such as a data point drawn on a canvas.
+     *
+     * @param toolTip
+     *            the ToolTip to show.
+     * @param anchor
+     *            the Anchor to position the ToolTipView relative to.
+     *
+     * @return the ToolTipView that was created.
+     */
+    public ToolTipView showToolTipForAnchor(final ToolTip toolTip, final Anchor anchor)
+    {
+        return showToolTip(toolTip, anchor);
+    }
+
+    /**
+     * Shows a {@link ToolTipView} like {@link #showToolTipForView(ToolTip, View)}, but inflates the ToolTipView and
+     * prepares the ToolTip's text, pointer and shadow on a background thread. Only binding, placing and attaching
+     * the ToolTipView happen on the main thread. Must be called from the main thread.
+     *
+     * @param toolTip
+     *            the ToolTip to show. Should not be modified until it is shown.
+     * @param view
+     *            the View to position the ToolTipView relative to.
+     *
+     * @return a handle to the ToolTip, which can cancel it until its ToolTipView is attached. If preparing the ToolTip
+     *         fails, the failure is logged on the main thread and the ToolTip is cancelled.
+     */
+    public PendingToolTip showToolTipForViewAsync(final ToolTip toolTip, final View view)
+    {
+        final PendingToolTip pendingToolTip = new PendingToolTip();
+        final ToolTipMetrics metrics = mToolTipMetrics;
+        final long showStartNanos = metrics != null ? System.nanoTime() : 0;
+
+        final int renderMode = mRenderMode == RENDER_MODE_FLAT && toolTip.getContentView() != null ? RENDER_MODE_VIEWS : mRenderMode;
+        final ToolTipView pooledToolTipView = renderMode == mToolTipViewPool.getRenderMode() ? mToolTipViewPool.poll() : null;
+        final int availableWidth = getAvailableWidth();
+        final Context context = getContext();
+        final Handler mainHandler = getMainHandler();
+        final Anchor anchor = Anchor.ofView(view);
+
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ToolTipView toolTipView = pooledToolTipView;
+                long inflationNanos = 0;
+                PreparedText preparedText = null;
+
+                try {
+                    if (!pendingToolTip.isCancelled()) {
+                        if (toolTipView == null) {
+                            long startNanos = System.nanoTime();
+                            toolTipView = new ToolTipView(context, renderMode);
+                            inflationNanos = System.nanoTime() - startNanos;
+                        }
+                        preparedText = prepareResources(context, toolTip, toolTipView.getMaxTextWidth(toolTip, availableWidth));
+                    }
+                }
+                catch (final RuntimeException e) {
+                    final ToolTipView failedToolTipView = toolTipView;
+                    mainHandler.post(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            onPrepareToolTipFailed(pendingToolTip, failedToolTipView, e);
+                        }
+                    });
+                    return;
+                }
+
+                final ToolTipView preparedToolTipView = toolTipView;
+                final boolean inflated = toolTipView != pooledToolTipView;
+                final long finalInflationNanos = inflationNanos;
+                final PreparedText finalPreparedText = preparedText;
+                mainHandler.post(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        if (inflated) {
+                            onToolTipViewInflated(preparedToolTipView, finalInflationNanos, metrics);
+                        }
+                        showPreparedToolTip(pendingToolTip, preparedToolTipView, toolTip, anchor, finalPreparedText, metrics, showStartNanos);
+                    }
+                });
+            }
+        });
+
+        return pendingToolTip;
     }
 
     /**
@@ -89,17 +315,13 @@ public class ToolTipRelativeLayout extends RelativeLayout
      */
     public ToolTipView showToolTipForViewResId(final Activity activity, final ToolTip toolTip, final int resId)
     {
-        final ToolTipView toolTipView = new ToolTipView(getContext());
-        final View decorView = activity.getWindow().getDecorView();
-        final View view = decorView.findViewById(resId);
+        final View view = AnchorResolver.findViewById(activity, resId);
 
         if (view == null) {
             throw new ViewNotFoundRuntimeException();
         }
 
-        toolTipView.setToolTip(toolTip, view);
-        addView(toolTipView);
-        return toolTipView;
+        return showToolTip(toolTip, Anchor.ofView(view));
     }
 
     /**
@@ -139,11 +361,11 @@ public class ToolTipRelativeLayout extends RelativeLayout
     @TargetApi(11)
     public ToolTipView showToolTipForActionBarTitle(final Activity activity, final ToolTip toolTip)
     {
-        final int titleResId = Resources.getSystem().getIdentifier(ACTION_BAR_TITLE, ID, ANDROID);
-        if (titleResId == 0) {
+        final View titleView = AnchorResolver.findActionBarTitleView(activity);
+        if (titleView == null) {
             throw new NoTitleViewRuntimeException();
         }
-        return showToolTipForViewResId(activity, toolTip, titleResId);
+        return showToolTip(toolTip, Anchor.ofView(titleView));
     }
 
     /**
@@ -164,41 +386,621 @@ public class ToolTipRelativeLayout extends RelativeLayout
     @TargetApi(11)
     public ToolTipView showToolTipForActionBarOverflowMenu(final Activity activity, final ToolTip toolTip)
     {
-        return showToolTipForView(toolTip, findActionBarOverflowMenuView(activity));
+        final View overflowMenuButton = AnchorResolver.findOverflowMenuButton(activity);
+        if (overflowMenuButton == null) {
+            throw new NoOverflowMenuRuntimeException();
+        }
+        return showToolTip(toolTip, Anchor.ofView(overflowMenuButton));
+    }
+
+    /**
+     * @return the Activity this layout was created with, or null if its Context does not wrap an Activity.
+     */
+    Activity getActivity()
+    {
+        Context context = getContext();
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Activity) {
+                return (Activity) context;
+            }
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return null;
     }
 
-    @TargetApi(11)
-    private static View findActionBarOverflowMenuView(final Activity activity)
+    /**
+     * Creates a {@link ToolTipTour}, which shows ToolTips one after the other in this layout. Add its steps, then
+     * call {@link ToolTipTour#start()}.
+     */
+    public ToolTipTour newToolTipTour()
+    {
+        return new ToolTipTour(this);
+    }
+
+    /**
+     * Schedules moving all shown {@link ToolTipView}s to their anchor Views on the next frame. Calling this several
+     * times before that frame results in a single pass, which only updates the ToolTipViews whose anchor moved.
+     */
+    public void requestToolTipReposition()
+    {
+        mRepositionAll = true;
+        scheduleReposition();
+    }
+
+    /**
+     * Schedules a reposition pass that only updates the ToolTipViews that have been marked dirty.
+     */
+    void requestDirtyToolTipReposition()
+    {
+        scheduleReposition();
+    }
+
+    private void scheduleReposition()
+    {
+        if (!mRepositionScheduled) {
+            mRepositionScheduled = true;
+            Choreographer.getInstance().postFrameCallback(mRepositionFrameCallback);
+        }
+    }
+
+    private void repositionToolTips()
     {
-        final ViewGroup decorView = (ViewGroup) activity.getWindow().getDecorView();
+        boolean repositionAll = mRepositionAll;
+        mRepositionAll = false;
 
-        final int actionBarViewResId = Resources.getSystem().getIdentifier(ACTION_BAR, ID, ANDROID);
-        final ViewGroup actionBarView = (ViewGroup) decorView.findViewById(actionBarViewResId);
+        getLocationOnScreen(mScreenPosition);
+        Rect displayFrame = getDisplayFrame();
 
-        ViewGroup actionMenuView = null;
-        int actionBarViewChildCount = actionBarView.getChildCount();
-        for (int i = 0; i < actionBarViewChildCount; ++i) {
-            if (actionBarView.getChildAt(i).getClass().getSimpleName().equals(ACTION_MENU_VIEW)) {
-                actionMenuView = (ViewGroup) actionBarView.getChildAt(i);
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; ++i) {
+            View child = getChildAt(i);
+            if (child instanceof ToolTipView) {
+                ToolTipView toolTipView = (ToolTipView) child;
+                if (repositionAll || toolTipView.isPositionDirty()) {
+                    toolTipView.applyToolTipPositionIfAnchorMoved(mScreenPosition[0], mScreenPosition[1], displayFrame);
+                }
             }
         }
+    }
 
-        if (actionMenuView == null) {
-            throw new NoOverflowMenuRuntimeException();
+    /**
+     * Returns the visible display frame of the window. Reading it is a call into the window manager, so it is only
+     * read again after the window laid out this layout, which happens when the size of the window or its insets
+     * change. Must not be modified.
+     */
+    Rect getDisplayFrame()
+    {
+        if (!mDisplayFrameValid) {
+            getWindowVisibleDisplayFrame(mDisplayFrame);
+            mDisplayFrameValid = true;
         }
+        return mDisplayFrame;
+    }
+
+    /**
+     * Starts polling the anchors of ToolTipViews that follow their anchor on every frame, until none of them moved
+     * for {@link #FOLLOW_IDLE_FRAME_COUNT} frames.
+     */
+    void startFollowingAnchors()
+    {
+        mFollowIdleFrames = 0;
+        if (!mFollowing && mObservedViewTreeObserver != null) {
+            mFollowing = true;
+            Choreographer.getInstance().postFrameCallback(mFollowFrameCallback);
+        }
+    }
+
+    private void stopFollowingAnchors()
+    {
+        if (mFollowing) {
+            mFollowing = false;
+            Choreographer.getInstance().removeFrameCallback(mFollowFrameCallback);
+        }
+    }
 
-        int actionMenuChildCount = actionMenuView.getChildCount();
-        View overflowMenuButton = null;
-        for (int i = 0; i < actionMenuChildCount; ++i) {
-            if (actionMenuView.getChildAt(i).getClass().getSimpleName().equals(OVERFLOW_MENU_BUTTON)) {
-                overflowMenuButton = actionMenuView.getChildAt(i);
+    /**
+     * Moves all ToolTipViews that follow their anchor, if their anchor moved.
+     *
+     * @return true if at least one ToolTipView was moved.
+     */
+    private boolean followAnchors()
+    {
+        boolean moved = false;
+        boolean locationKnown = false;
+
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; ++i) {
+            View child = getChildAt(i);
+            if (child instanceof ToolTipView && ((ToolTipView) child).isFollowAnchorEnabled()) {
+                if (!locationKnown) {
+                    getLocationOnScreen(mScreenPosition);
+                    locationKnown = true;
+                }
+                moved |= ((ToolTipView) child).applyToolTipPositionIfAnchorMoved(mScreenPosition[0], mScreenPosition[1], getDisplayFrame());
             }
         }
+        return moved;
+    }
 
-        if (overflowMenuButton == null) {
-            throw new NoOverflowMenuRuntimeException();
+    private void onScrollChanged()
+    {
+        boolean scheduled = false;
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; ++i) {
+            View child = getChildAt(i);
+            if (child instanceof ToolTipView && ((ToolTipView) child).isAnchorTrackingEnabled()) {
+                ((ToolTipView) child).setPositionDirty();
+                scheduled = true;
+            }
+        }
+
+        if (scheduled) {
+            scheduleReposition();
+        }
+    }
+
+    @Override
+    public void addView(final View child, final int index, final ViewGroup.LayoutParams params)
+    {
+        if (!(child instanceof ToolTipView)) {
+            // Other children may depend on RelativeLayout rules, which need regular layout passes.
+            mDedicatedHost = false;
+        }
+        super.addView(child, index, params);
+    }
+
+    @Override
+    public void requestLayout()
+    {
+        if (mDedicatedHost && !mInLayout && getWidth() > 0 && canLayoutToolTipsOnly()) {
+            // ToolTipViews do not change the size of this layout, so only they need to be laid out again.
+            if (!mToolTipLayoutScheduled) {
+                mToolTipLayoutScheduled = true;
+                Choreographer.getInstance().postFrameCallback(mToolTipLayoutFrameCallback);
+            }
+            return;
+        }
+        super.requestLayout();
+    }
+
+    @Override
+    protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec)
+    {
+        if (!canLayoutToolTipsOnly()) {
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+            return;
+        }
+
+        // All children are positioned by translation, so none of the RelativeLayout rules need to be resolved.
+        mInLayout = true;
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; ++i) {
+            measureToolTipView(getChildAt(i), widthMeasureSpec, heightMeasureSpec);
+        }
+        setMeasuredDimension(getDefaultSize(0, widthMeasureSpec), getDefaultSize(0, heightMeasureSpec));
+        mInLayout = false;
+    }
+
+    @Override
+    protected void onLayout(final boolean changed, final int l, final int t, final int r, final int b)
+    {
+        mDisplayFrameValid = false;
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; ++i) {
+            countLayoutPass(getChildAt(i));
+        }
+        if (!canLayoutToolTipsOnly()) {
+            super.onLayout(changed, l, t, r, b);
+            return;
+        }
+
+        mInLayout = true;
+        for (int i = 0; i < childCount; ++i) {
+            layoutToolTipView(getChildAt(i));
+        }
+        mInLayout = false;
+    }
+
+    /**
+     * @return true if this layout fills its parent and only holds ToolTipViews, so it can skip the RelativeLayout
+     *         measure and layout logic.
+     */
+    private boolean canLayoutToolTipsOnly()
+    {
+        ViewGroup.LayoutParams layoutParams = getLayoutParams();
+        if (layoutParams == null || layoutParams.width != ViewGroup.LayoutParams.MATCH_PARENT || layoutParams.height != ViewGroup.LayoutParams.MATCH_PARENT) {
+            return false;
+        }
+
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; ++i) {
+            if (!(getChildAt(i) instanceof ToolTipView)) {
+                return false;
+            }
         }
+        return true;
+    }
+
+    private void measureToolTipView(final View child, final int widthMeasureSpec, final int heightMeasureSpec)
+    {
+        if (child.getVisibility() == GONE) {
+            return;
+        }
+
+        ViewGroup.LayoutParams layoutParams = child.getLayoutParams();
+        int childWidthMeasureSpec = getChildMeasureSpec(widthMeasureSpec, getPaddingLeft() + getPaddingRight(), layoutParams.width);
+        int childHeightMeasureSpec = getChildMeasureSpec(heightMeasureSpec, getPaddingTop() + getPaddingBottom(), layoutParams.height);
+        if (child instanceof ToolTipView && ((ToolTipView) child).hasMeasuredForHost(childWidthMeasureSpec, childHeightMeasureSpec)) {
+            // Measured against this layout when it was prepared or placed, and unchanged since.
+            return;
+        }
+        child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+    }
+
+    private void layoutToolTipView(final View child)
+    {
+        if (child.getVisibility() != GONE) {
+            child.layout(getPaddingLeft(), getPaddingTop(), getPaddingLeft() + child.getMeasuredWidth(), getPaddingTop() + child.getMeasuredHeight());
+        }
+    }
+
+    /**
+     * Reports a layout pass of this layout that reaches given child to its ToolTipMetrics, if it is a ToolTipView.
+     */
+    private static void countLayoutPass(final View child)
+    {
+        if (child instanceof ToolTipView) {
+            ((ToolTipView) child).onHostLayoutPass();
+        }
+    }
+
+    /**
+     * Measures and lays out the ToolTipViews that requested a layout, without a layout pass of the whole window.
+     */
+    private void layoutToolTipViews()
+    {
+        if (!canLayoutToolTipsOnly()) {
+            super.requestLayout();
+            return;
+        }
+
+        int widthMeasureSpec = MeasureSpec.makeMeasureSpec(getWidth(), MeasureSpec.EXACTLY);
+        int heightMeasureSpec = MeasureSpec.makeMeasureSpec(getHeight(), MeasureSpec.EXACTLY);
+
+        mInLayout = true;
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; ++i) {
+            View child = getChildAt(i);
+            if (child.isLayoutRequested()) {
+                countLayoutPass(child);
+                measureToolTipView(child, widthMeasureSpec, heightMeasureSpec);
+                layoutToolTipView(child);
+            }
+        }
+        mInLayout = false;
+    }
+
+    @Override
+    protected void onAttachedToWindow()
+    {
+        super.onAttachedToWindow();
+        mDisplayFrameValid = false;
+        getMainHandler().removeCallbacks(mDetachedTeardownRunnable);
+        mObservedViewTreeObserver = getViewTreeObserver();
+        mObservedViewTreeObserver.addOnScrollChangedListener(mScrollChangedListener);
+        mObservedViewTreeObserver.addOnPreDrawListener(mFollowPreDrawListener);
+    }
+
+    @Override
+    protected void onDetachedFromWindow()
+    {
+        super.onDetachedFromWindow();
+
+        // The window is gone, and so are the anchors. The ToolTipViews are dismissed once the detach dispatch is
+        // over, as removing them while it runs would re-enter their own onDetachedFromWindow().
+        getMainHandler().post(mDetachedTeardownRunnable);
+        mToolTipViewPool.cancelPrewarm();
+
+        if (mObservedViewTreeObserver != null && mObservedViewTreeObserver.isAlive()) {
+            mObservedViewTreeObserver.removeOnScrollChangedListener(mScrollChangedListener);
+            mObservedViewTreeObserver.removeOnPreDrawListener(mFollowPreDrawListener);
+        }
+        mObservedViewTreeObserver = null;
+        stopFollowingAnchors();
+
+        if (mRepositionScheduled) {
+            mRepositionScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(mRepositionFrameCallback);
+        }
+
+        if (mToolTipLayoutScheduled) {
+            mToolTipLayoutScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(mToolTipLayoutFrameCallback);
+            super.requestLayout();
+        }
+    }
+
+    private ToolTipView showToolTip(final ToolTip toolTip, final Anchor anchor)
+    {
+        final ToolTipMetrics metrics = mToolTipMetrics;
+        final long showStartNanos = metrics != null ? System.nanoTime() : 0;
+
+        final ToolTipView toolTipView = obtainToolTipView(toolTip);
+        bindToolTipView(toolTipView, toolTip, anchor, metrics, showStartNanos);
+        return toolTipView;
+    }
+
+    private void bindToolTipView(final ToolTipView toolTipView, final ToolTip toolTip, final Anchor anchor, final ToolTipMetrics metrics, final long showStartNanos)
+    {
+        toolTipView.setAnchorTrackingEnabled(mAnchorTrackingEnabled);
+
+        if (metrics != null) {
+            long bindStartNanos = System.nanoTime();
+            toolTipView.setMetrics(metrics, showStartNanos);
+            toolTipView.setToolTip(toolTip, anchor);
+            metrics.onToolTipBound(toolTipView, System.nanoTime() - bindStartNanos);
+        }
+        else {
+            toolTipView.setToolTip(toolTip, anchor);
+        }
+
+        addToolTipView(toolTipView);
+    }
+
+    private void onToolTipViewInflated(final ToolTipView toolTipView, final long inflationNanos, final ToolTipMetrics metrics)
+    {
+        if (toolTipView.getRenderMode() == mToolTipViewPool.getRenderMode()) {
+            mToolTipViewPool.recordMiss();
+        }
+        if (metrics != null) {
+            metrics.onToolTipViewInflated(inflationNanos);
+        }
+    }
+
+    /**
+     * Attaches a ToolTipView that was prepared by {@link #showToolTipForViewAsync(ToolTip, View)}, unless the
+     * ToolTip was cancelled in the meantime.
+     */
+    private void showPreparedToolTip(final PendingToolTip pendingToolTip, final ToolTipView toolTipView, ToolTip toolTip, final Anchor anchor,
+                                     final PreparedText preparedText, final ToolTipMetrics metrics, final long showStartNanos)
+    {
+        if (pendingToolTip.isCancelled()) {
+            mToolTipViewPool.release(toolTipView);
+            return;
+        }
+
+        if (preparedText != null && toolTip.getPreparedText() == null) {
+            toolTip = toolTip.copyWithPreparedText(preparedText);
+        }
+
+        bindToolTipView(toolTipView, toolTip, anchor, metrics, showStartNanos);
+        pendingToolTip.onShown(toolTipView);
+    }
+
+    /**
+     * Cancels a ToolTip whose preparation by {@link #showToolTipForViewAsync(ToolTip, View)} threw given exception,
+     * and hands its ToolTipView, if any, back to the pool.
+     */
+    private void onPrepareToolTipFailed(final PendingToolTip pendingToolTip, final ToolTipView toolTipView, final RuntimeException e)
+    {
+        Log.e(TAG, "Could not prepare ToolTip", e);
+        pendingToolTip.cancel();
+        if (toolTipView != null) {
+            mToolTipViewPool.release(toolTipView);
+        }
+    }
+
+    /**
+     * Resolves everything given ToolTip needs that does not depend on a View: its text layout, and the shared
+     * pointer geometry and shadow. Safe to call from a background thread.
+     *
+     * @return the prepared text, or null if the ToolTip has no text or uses a content View.
+     */
+    private static PreparedText prepareResources(final Context context, final ToolTip toolTip, final int maxTextWidth)
+    {
+        Resources resources = context.getResources();
+        int pointerWidth = resources.getDimensionPixelSize(R.dimen.tooltip_pointer_width);
+        int pointerHeight = resources.getDimensionPixelSize(R.dimen.tooltip_pointer_height);
+        int pointerOverlap = resources.getDimensionPixelSize(R.dimen.tooltip_pointer_overlap);
+        PointerGeometry.obtain(pointerWidth, pointerHeight, toolTip.getTipArcSize(), pointerOverlap - 1, PointerGeometry.Direction.UP);
+        PointerGeometry.obtain(pointerWidth, pointerHeight, toolTip.getTipArcSize(), pointerOverlap - 1, PointerGeometry.Direction.DOWN);
+
+        if (toolTip.shouldShowShadow() && toolTip.getShadowColor() != 0) {
+            int radius = toolTip.getBorderRadius() != 0 ? toolTip.getBorderRadius() : (int) (2 * resources.getDisplayMetrics().density);
+            ToolTipShadow.obtain(radius, toolTip.getShadowColor());
+        }
+
+        if (toolTip.getContentView() != null || toolTip.getPreparedText() != null) {
+            return null;
+        }
+        return PreparedText.prepare(context, toolTip, maxTextWidth);
+    }
+
+    /**
+     * @return the width available to a ToolTipView in this layout, or the width of the display if this layout was not
+     *         laid out yet.
+     */
+    private int getAvailableWidth()
+    {
+        return getWidth() > 0 ? getWidth() - getPaddingLeft() - getPaddingRight() : getResources().getDisplayMetrics().widthPixels;
+    }
 
-        return overflowMenuButton;
+    private Handler getMainHandler()
+    {
+        if (mMainHandler == null) {
+            mMainHandler = new Handler(Looper.getMainLooper());
+        }
+        return mMainHandler;
+    }
+
+    /**
+     * Places given ToolTipView before attaching it when possible, so it is drawn at its final position right away.
+     */
+    private void addToolTipView(final ToolTipView toolTipView)
+    {
+        toolTipView.placeBeforeAttach(this);
+        addView(toolTipView);
+    }
+
+    /**
+     * Obtains a ToolTipView for given ToolTip and binds it, without attaching it. If this layout has been laid
+     * out, the ToolTipView is measured against it as well, so attaching it later is cheap.
+     */
+    ToolTipView prepareToolTipView(final ToolTip toolTip, final Anchor anchor)
+    {
+        ToolTipView toolTipView = obtainToolTipView(toolTip);
+        toolTipView.setAnchorTrackingEnabled(mAnchorTrackingEnabled);
+        toolTipView.setToolTip(toolTip, anchor);
+
+        if (getWidth() > 0) {
+            toolTipView.premeasureForHost(this);
+        }
+        return toolTipView;
+    }
+
+    /**
+     * Attaches a ToolTipView that was obtained by {@link #prepareToolTipView(ToolTip, Anchor)}.
+     */
+    void showPreparedToolTipView(final ToolTipView toolTipView)
+    {
+        addToolTipView(toolTipView);
+    }
+
+    /**
+     * Returns a ToolTipView that was obtained by {@link #prepareToolTipView(ToolTip, Anchor)}, but never attached,
+     * to the pool.
+     */
+    void recycleToolTipView(final ToolTipView toolTipView)
+    {
+        mToolTipViewPool.release(toolTipView);
+    }
+
+    private ToolTipView obtainToolTipView(final ToolTip toolTip)
+    {
+        if (mRenderMode == RENDER_MODE_FLAT && toolTip.getContentView() != null) {
+            return inflateToolTipView(RENDER_MODE_VIEWS);
+        }
+
+        int missCount = mToolTipViewPool.getMissCount();
+        long startNanos = mToolTipMetrics != null ? System.nanoTime() : 0;
+        ToolTipView toolTipView = mToolTipViewPool.acquire();
+        if (mToolTipMetrics != null && mToolTipViewPool.getMissCount() != missCount) {
+            mToolTipMetrics.onToolTipViewInflated(System.nanoTime() - startNanos);
+        }
+        return toolTipView;
+    }
+
+    private ToolTipView inflateToolTipView(final int renderMode)
+    {
+        if (mToolTipMetrics == null) {
+            return new ToolTipView(getContext(), renderMode);
+        }
+
+        long startNanos = System.nanoTime();
+        ToolTipView toolTipView = new ToolTipView(getContext(), renderMode);
+        mToolTipMetrics.onToolTipViewInflated(System.nanoTime() - startNanos);
+        return toolTipView;
+    }
+
+    /**
+     * Called by a {@link ToolTipView} once it has removed itself from this layout.
+     */
+    void onToolTipViewRemoved(final ToolTipView toolTipView)
+    {
+        mToolTipViewPool.release(toolTipView);
+    }
+
+    private class ScrollChangedListener implements ViewTreeObserver.OnScrollChangedListener
+    {
+
+        @Override
+        public void onScrollChanged()
+        {
+            ToolTipRelativeLayout.this.onScrollChanged();
+        }
+    }
+
+    /**
+     * Moving an anchor through its translation does not trigger layout or scroll callbacks, but it does cause the
+     * window to be drawn. This listener checks the followed anchors before such a draw, and starts polling them on
+     * each frame once one of them moved.
+     */
+    private class FollowPreDrawListener implements ViewTreeObserver.OnPreDrawListener
+    {
+
+        @Override
+        public boolean onPreDraw()
+        {
+            if (!mFollowing && followAnchors()) {
+                startFollowingAnchors();
+            }
+            return true;
+        }
+    }
+
+    private class FollowFrameCallback implements Choreographer.FrameCallback
+    {
+
+        @Override
+        public void doFrame(final long frameTimeNanos)
+        {
+            if (followAnchors()) {
+                mFollowIdleFrames = 0;
+            }
+            else {
+                mFollowIdleFrames++;
+            }
+
+            if (mFollowIdleFrames < FOLLOW_IDLE_FRAME_COUNT) {
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+            else {
+                mFollowing = false;
+            }
+        }
+    }
+
+    private class ToolTipLayoutFrameCallback implements Choreographer.FrameCallback
+    {
+
+        @Override
+        public void doFrame(final long frameTimeNanos)
+        {
+            mToolTipLayoutScheduled = false;
+            layoutToolTipViews();
+        }
+    }
+
+    /**
+     * Dismisses all ToolTipViews, which returns them to the pool, unless this layout was attached again meanwhile.
+     */
+    private class DetachedTeardownRunnable implements Runnable
+    {
+
+        @Override
+        public void run()
+        {
+            if (getWindowToken() != null) {
+                return;
+            }
+
+            for (int i = getChildCount() - 1; i >= 0; --i) {
+                View child = getChildAt(i);
+                if (child instanceof ToolTipView) {
+                    ((ToolTipView) child).removeImmediately();
+                }
+            }
+        }
+    }
+
+    private class RepositionFrameCallback implements Choreographer.FrameCallback
+    {
+
+        @Override
+        public void doFrame(final long frameTimeNanos)
+        {
+            mRepositionScheduled = false;
+            repositionToolTips();
+        }
     }
 }
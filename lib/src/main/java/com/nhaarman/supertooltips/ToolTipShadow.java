@@ -0,0 +1,141 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.util.LruCache;
+
+/**
+ * A pre-rendered ToolTip shadow: a small bitmap of a rounded rectangle that is drawn as a nine-patch, so it can be
+ * stretched to any size without redrawing its corners. Instances are shared by all shadows with the same radius and
+ * color through {@link #obtain(int, int)}.</p>
+ * The shadow is a copy of the bubble that is offset by the shadow size, so the shadow size only changes where the
+ * shadow is drawn, not the pre-rendered bitmap.
+ */
+final class ToolTipShadow
+{
+
+    private static final int CACHE_SIZE = 16;
+
+    private static final LruCache<Key, ToolTipShadow> CACHE = new LruCache<>(CACHE_SIZE);
+
+    // Only used from the main thread, while drawing.
+    private static final Rect SRC = new Rect();
+    private static final Rect DST = new Rect();
+    private static final Paint PAINT = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private static final int[] DST_X = new int[4];
+    private static final int[] DST_Y = new int[4];
+
+    private final Bitmap mBitmap;
+    private final int mRadius;
+
+    // The edges of the columns and rows in the bitmap: the left or top corners, the center, the right or bottom corners.
+    private final int[] mSrcEdges;
+
+    private ToolTipShadow(final int radius, final int color)
+    {
+        mRadius = radius;
+
+        int size = 2 * radius + 1;
+        mSrcEdges = new int[]{0, radius, radius + 1, size};
+        mBitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(color);
+        new Canvas(mBitmap).drawRoundRect(new RectF(0, 0, size, size), radius, radius, paint);
+    }
+
+    /**
+     * Returns the shared shadow for given corner radius and color.
+     */
+    static ToolTipShadow obtain(final int radius, final int color)
+    {
+        Key key = new Key(Math.max(0, radius), color);
+        ToolTipShadow shadow = CACHE.get(key);
+        if (shadow == null) {
+            shadow = new ToolTipShadow(key.mRadius, color);
+            CACHE.put(key, shadow);
+        }
+        return shadow;
+    }
+
+    /**
+     * Draws this shadow stretched to given bounds. Corners are scaled down if the bounds are too small to fit them.
+     */
+    void draw(final Canvas canvas, final int left, final int top, final int right, final int bottom)
+    {
+        int cornerWidth = Math.min(mRadius, (right - left) / 2);
+        int cornerHeight = Math.min(mRadius, (bottom - top) / 2);
+
+        DST_X[0] = left;
+        DST_X[1] = left + cornerWidth;
+        DST_X[2] = right - cornerWidth;
+        DST_X[3] = right;
+        DST_Y[0] = top;
+        DST_Y[1] = top + cornerHeight;
+        DST_Y[2] = bottom - cornerHeight;
+        DST_Y[3] = bottom;
+
+        for (int row = 0; row < 3; row++) {
+            for (int column = 0; column < 3; column++) {
+                DST.set(DST_X[column], DST_Y[row], DST_X[column + 1], DST_Y[row + 1]);
+                if (DST.isEmpty()) {
+                    continue;
+                }
+                SRC.set(mSrcEdges[column], mSrcEdges[row], mSrcEdges[column + 1], mSrcEdges[row + 1]);
+                canvas.drawBitmap(mBitmap, SRC, DST, PAINT);
+            }
+        }
+    }
+
+    private static final class Key
+    {
+
+        private final int mRadius;
+        private final int mColor;
+
+        Key(final int radius, final int color)
+        {
+            mRadius = radius;
+            mColor = color;
+        }
+
+        @Override
+        public boolean equals(final Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key) o;
+            return mRadius == key.mRadius
+                    && mColor == key.mColor;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * mRadius + mColor;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.graphics.Typeface;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * The visual part of a built {@link ToolTip}: colors, border, radius, shadow, padding, arc size, typeface and
+ * animation. Styles are interned, so all ToolTips that look the same share one ToolTipStyle instance, and
+ * ToolTipViews can tell that a style is already applied by comparing references.
+ */
+public final class ToolTipStyle
+{
+
+    private static final WeakHashMap<ToolTipStyle, WeakReference<ToolTipStyle>> sStyles = new WeakHashMap<>();
+
+    private final int mColor;
+    private final int mBorderColor;
+    private final int mTextColor;
+    private final int mShadowColor;
+    private final boolean mShowBorder;
+    private final int mBorderWidth;
+    private final int mBorderRadius;
+    private final int mHorizontalPadding;
+    private final int mVerticalPadding;
+    private final int mTipArcSize;
+    private final boolean mShouldShowShadow;
+    private final int mShadowSize;
+    private final Typeface mTypeface;
+    private final ToolTipAnimation mAnimation;
+    private final long mAnimationDuration;
+    private final int mHashCode;
+
+    private ToolTipStyle(final ToolTip toolTip)
+    {
+        mColor = toolTip.getColor();
+        mBorderColor = toolTip.getBorderColor();
+        mTextColor = toolTip.getTextColor();
+        mShadowColor = toolTip.getShadowColor();
+        mShowBorder = toolTip.shouldShowBorder();
+        mBorderWidth = toolTip.getBorderWidth();
+        mBorderRadius = toolTip.getBorderRadius();
+        mHorizontalPadding = toolTip.getHorizontalPadding();
+        mVerticalPadding = toolTip.getVerticalPadding();
+        mTipArcSize = toolTip.getTipArcSize();
+        mShouldShowShadow = toolTip.shouldShowShadow();
+        mShadowSize = toolTip.getShadowSize();
+        mTypeface = toolTip.getTypeface();
+        mAnimation = toolTip.getAnimation();
+        mAnimationDuration = toolTip.getAnimationDuration();
+        mHashCode = computeHashCode();
+    }
+
+    /**
+     * @return the shared ToolTipStyle that holds the visual values of given ToolTip. Safe to call from any thread.
+     */
+    static ToolTipStyle of(final ToolTip toolTip)
+    {
+        ToolTipStyle style = new ToolTipStyle(toolTip);
+        synchronized (sStyles) {
+            WeakReference<ToolTipStyle> reference = sStyles.get(style);
+            ToolTipStyle interned = reference != null ? reference.get() : null;
+            if (interned != null) {
+                return interned;
+            }
+
+            sStyles.put(style, new WeakReference<>(style));
+            return style;
+        }
+    }
+
+    public int getColor()
+    {
+        return mColor;
+    }
+
+    public int getBorderColor()
+    {
+        return mBorderColor;
+    }
+
+    public int getTextColor()
+    {
+        return mTextColor;
+    }
+
+    public int getShadowColor()
+    {
+        return mShadowColor;
+    }
+
+    public boolean shouldShowBorder()
+    {
+        return mShowBorder;
+    }
+
+    public int getBorderWidth()
+    {
+        return mBorderWidth;
+    }
+
+    public int getBorderRadius()
+    {
+        return mBorderRadius;
+    }
+
+    public int getHorizontalPadding()
+    {
+        return mHorizontalPadding;
+    }
+
+    public int getVerticalPadding()
+    {
+        return mVerticalPadding;
+    }
+
+    public int getTipArcSize()
+    {
+        return mTipArcSize;
+    }
+
+    public boolean shouldShowShadow()
+    {
+        return mShouldShowShadow;
+    }
+
+    public int getShadowSize()
+    {
+        return mShadowSize;
+    }
+
+    public Typeface getTypeface()
+    {
+        return mTypeface;
+    }
+
+    public ToolTipAnimation getAnimation()
+    {
+        return mAnimation;
+    }
+
+    public long getAnimationDuration()
+    {
+        return mAnimationDuration;
+    }
+
+    @Override
+    public boolean equals(final Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ToolTipStyle)) {
+            return false;
+        }
+
+        ToolTipStyle other = (ToolTipStyle) o;
+        return mHashCode == other.mHashCode
+                && mColor == other.mColor
+                && mBorderColor == other.mBorderColor
+                && mTextColor == other.mTextColor
+                && mShadowColor == other.mShadowColor
+                && mShowBorder == other.mShowBorder
+                && mBorderWidth == other.mBorderWidth
+                && mBorderRadius == other.mBorderRadius
+                && mHorizontalPadding == other.mHorizontalPadding
+                && mVerticalPadding == other.mVerticalPadding
+                && mTipArcSize == other.mTipArcSize
+                && mShouldShowShadow == other.mShouldShowShadow
+                && mShadowSize == other.mShadowSize
+                && mTypeface == other.mTypeface
+                && mAnimation == other.mAnimation
+                && mAnimationDuration == other.mAnimationDuration;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return mHashCode;
+    }
+
+    private int computeHashCode()
+    {
+        int result = mColor;
+        result = 31 * result + mBorderColor;
+        result = 31 * result + mTextColor;
+        result = 31 * result + mShadowColor;
+        result = 31 * result + (mShowBorder ? 1 : 0);
+        result = 31 * result + mBorderWidth;
+        result = 31 * result + mBorderRadius;
+        result = 31 * result + mHorizontalPadding;
+        result = 31 * result + mVerticalPadding;
+        result = 31 * result + mTipArcSize;
+        result = 31 * result + (mShouldShowShadow ? 1 : 0);
+        result = 31 * result + mShadowSize;
+        result = 31 * result + (mTypeface != null ? System.identityHashCode(mTypeface) : 0);
+        result = 31 * result + (mAnimation != null ? System.identityHashCode(mAnimation) : 0);
+        result = 31 * result + (int) (mAnimationDuration ^ (mAnimationDuration >>> 32));
+        return result;
+    }
+}
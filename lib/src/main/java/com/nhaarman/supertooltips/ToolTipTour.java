@@ -0,0 +1,408 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.app.Activity;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.View;
+
+import com.nhaarman.supertooltips.exception.ViewNotFoundRuntimeException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shows a sequence of ToolTips one after the other, for example to walk a user through a screen. Create one using
+ * {@link ToolTipRelativeLayout#newToolTipTour()}.</p>
+ * While a step is shown, the next step is prepared whenever the main thread is idle: its ToolTipView is obtained,
+ * bound and measured, and its anchor is resolved. Advancing to the next step then only attaches a ready
+ * ToolTipView. Clicking the ToolTipView of a step advances the tour. Must only be used from the main thread.
+ */
+public final class ToolTipTour
+{
+
+    private final ToolTipRelativeLayout mToolTipRelativeLayout;
+    private final List<Step> mSteps = new ArrayList<>();
+
+    private final PrefetchIdleHandler mPrefetchIdleHandler = new PrefetchIdleHandler();
+    private boolean mPrefetchScheduled;
+
+    private int mCurrentStep = -1;
+    private ToolTipView mCurrentToolTipView;
+    private int mPreparedStep = -1;
+    private ToolTipView mPreparedToolTipView;
+    private boolean mFinished;
+    private boolean mMorphEnabled;
+
+    private OnStepListener mListener;
+
+    ToolTipTour(final ToolTipRelativeLayout toolTipRelativeLayout)
+    {
+        mToolTipRelativeLayout = toolTipRelativeLayout;
+    }
+
+    /**
+     * Adds a step that shows given ToolTip pointing at given View.
+     *
+     * @return this ToolTipTour to build upon.
+     */
+    public ToolTipTour addStep(final ToolTip toolTip, final View view)
+    {
+        return addStep(toolTip, Anchor.ofView(view));
+    }
+
+    /**
+     * Adds a step that shows given ToolTip pointing at given Anchor.
+     *
+     * @return this ToolTipTour to build upon.
+     */
+    public ToolTipTour addStep(final ToolTip toolTip, final Anchor anchor)
+    {
+        mSteps.add(new Step(toolTip, anchor, View.NO_ID));
+        return this;
+    }
+
+    /**
+     * Adds a step that shows given ToolTip pointing at the View with given resource id. The View is looked up when
+     * the step is prepared, so it does not need to exist yet.
+     *
+     * @return this ToolTipTour to build upon.
+     */
+    public ToolTipTour addStep(final ToolTip toolTip, final int anchorResId)
+    {
+        mSteps.add(new Step(toolTip, null, anchorResId));
+        return this;
+    }
+
+    public void setOnStepListener(final OnStepListener listener)
+    {
+        mListener = listener;
+    }
+
+    /**
+     * Set whether advancing moves the ToolTipView of the current step to the next anchor, using
+     * {@link ToolTipView#moveTo(ToolTip, Anchor)}, instead of dismissing it and showing a new one. Only the anchor
+     * of the next step is then prepared ahead of time. Disabled by default.
+     */
+    public void setMorphEnabled(final boolean enabled)
+    {
+        mMorphEnabled = enabled;
+        if (mCurrentToolTipView != null) {
+            mCurrentToolTipView.setDismissOnClick(!enabled);
+        }
+    }
+
+    public boolean isMorphEnabled()
+    {
+        return mMorphEnabled;
+    }
+
+    /**
+     * Shows the first step.
+     *
+     * @throws ViewNotFoundRuntimeException
+     *             if the anchor of a step was given by resource id, and no View with that id is found.
+     */
+    public void start()
+    {
+        if (mCurrentStep != -1) {
+            throw new IllegalStateException("This ToolTipTour was started already.");
+        }
+
+        if (mSteps.isEmpty()) {
+            finish();
+            return;
+        }
+        showStep(0);
+    }
+
+    /**
+     * Dismisses the current step and shows the next one, or finishes the tour after the last step.
+     */
+    public void next()
+    {
+        if (mCurrentStep == -1 || mFinished) {
+            return;
+        }
+
+        if (mCurrentStep + 1 < mSteps.size()) {
+            showStep(mCurrentStep + 1);
+        }
+        else {
+            finish();
+        }
+    }
+
+    /**
+     * Dismisses the current step and ends the tour, without notifying the listener.
+     */
+    public void cancel()
+    {
+        mListener = null;
+        finish();
+    }
+
+    /**
+     * @return the index of the step that is shown, or -1 if the tour has not started.
+     */
+    public int getCurrentStep()
+    {
+        return mCurrentStep;
+    }
+
+    public int getStepCount()
+    {
+        return mSteps.size();
+    }
+
+    public boolean isFinished()
+    {
+        return mFinished;
+    }
+
+    /**
+     * @return the time it took to prepare given step in idle time, in nanoseconds, or 0 if the step was not
+     * prepared ahead of time.
+     */
+    public long getStepPrepareNanos(final int step)
+    {
+        return mSteps.get(step).mPrepareNanos;
+    }
+
+    /**
+     * @return the time it took on the main thread to advance to given step, in nanoseconds, or 0 if the step was
+     * not shown yet.
+     */
+    public long getStepShowNanos(final int step)
+    {
+        return mSteps.get(step).mShowNanos;
+    }
+
+    private void showStep(final int index)
+    {
+        long startNanos = System.nanoTime();
+        Step step = mSteps.get(index);
+
+        ToolTipView toolTipView;
+        // mCurrentToolTipView is cleared as soon as it is removed, so a pooled view that was re-acquired elsewhere
+        // is never morphed.
+        if (mMorphEnabled && mCurrentToolTipView != null) {
+            if (!resolveAnchor(step)) {
+                throw new ViewNotFoundRuntimeException();
+            }
+            toolTipView = mCurrentToolTipView;
+            toolTipView.moveTo(step.mToolTip, step.mAnchor);
+        }
+        else {
+            dismissCurrentStep();
+            toolTipView = obtainStepToolTipView(index);
+            mToolTipRelativeLayout.showPreparedToolTipView(toolTipView);
+        }
+
+        StepListener stepListener = new StepListener(index);
+        toolTipView.setOnToolTipViewClickedListener(stepListener);
+        toolTipView.setOnToolTipViewRemovedListener(stepListener);
+
+        // When morphing, a click moves the ToolTipView on to the next step instead of dismissing it.
+        toolTipView.setDismissOnClick(!mMorphEnabled);
+        mCurrentToolTipView = toolTipView;
+        mCurrentStep = index;
+        step.mShowNanos = System.nanoTime() - startNanos;
+
+        if (mListener != null) {
+            mListener.onStepShown(this, index, toolTipView);
+        }
+
+        if (index + 1 < mSteps.size()) {
+            schedulePrefetch();
+        }
+    }
+
+    /**
+     * @return the prepared ToolTipView of given step, or a newly prepared one if there is none.
+     */
+    private ToolTipView obtainStepToolTipView(final int index)
+    {
+        ToolTipView toolTipView;
+        if (mPreparedStep == index) {
+            toolTipView = mPreparedToolTipView;
+            mPreparedToolTipView = null;
+            mPreparedStep = -1;
+        }
+        else {
+            recyclePreparedStep();
+            Step step = mSteps.get(index);
+            if (!resolveAnchor(step)) {
+                throw new ViewNotFoundRuntimeException();
+            }
+            toolTipView = mToolTipRelativeLayout.prepareToolTipView(step.mToolTip, step.mAnchor);
+        }
+        return toolTipView;
+    }
+
+    /**
+     * Looks up the anchor View of given step, if it was given by resource id.
+     *
+     * @return false if the anchor View could not be found.
+     */
+    private boolean resolveAnchor(final Step step)
+    {
+        if (step.mAnchor == null) {
+            // Looks in the window of the Activity, as the root View of the layout is the layout itself until it is
+            // attached.
+            Activity activity = mToolTipRelativeLayout.getActivity();
+            View anchorView = activity != null ? AnchorResolver.findViewById(activity, step.mAnchorResId) : mToolTipRelativeLayout.getRootView().findViewById(step.mAnchorResId);
+            if (anchorView == null) {
+                return false;
+            }
+            step.mAnchor = Anchor.ofView(anchorView);
+        }
+        return true;
+    }
+
+    private void dismissCurrentStep()
+    {
+        if (mCurrentToolTipView != null) {
+            ToolTipView toolTipView = mCurrentToolTipView;
+            mCurrentToolTipView = null;
+            toolTipView.setOnToolTipViewClickedListener(null);
+            toolTipView.setOnToolTipViewRemovedListener(null);
+            toolTipView.remove();
+        }
+    }
+
+    private void recyclePreparedStep()
+    {
+        if (mPreparedToolTipView != null) {
+            mToolTipRelativeLayout.recycleToolTipView(mPreparedToolTipView);
+            mPreparedToolTipView = null;
+        }
+        mPreparedStep = -1;
+    }
+
+    private void finish()
+    {
+        if (mFinished) {
+            return;
+        }
+
+        mFinished = true;
+        if (mPrefetchScheduled) {
+            mPrefetchScheduled = false;
+            Looper.myQueue().removeIdleHandler(mPrefetchIdleHandler);
+        }
+        dismissCurrentStep();
+        recyclePreparedStep();
+
+        if (mListener != null) {
+            mListener.onTourFinished(this);
+        }
+    }
+
+    private void schedulePrefetch()
+    {
+        if (!mPrefetchScheduled) {
+            mPrefetchScheduled = true;
+            Looper.myQueue().addIdleHandler(mPrefetchIdleHandler);
+        }
+    }
+
+    public interface OnStepListener
+    {
+
+        void onStepShown(ToolTipTour tour, int step, ToolTipView toolTipView);
+
+        void onTourFinished(ToolTipTour tour);
+    }
+
+    private static class Step
+    {
+
+        private final ToolTip mToolTip;
+        private final int mAnchorResId;
+        private Anchor mAnchor;
+        private long mPrepareNanos;
+        private long mShowNanos;
+
+        Step(final ToolTip toolTip, final Anchor anchor, final int anchorResId)
+        {
+            mToolTip = toolTip;
+            mAnchor = anchor;
+            mAnchorResId = anchorResId;
+        }
+    }
+
+    private class PrefetchIdleHandler implements MessageQueue.IdleHandler
+    {
+
+        @Override
+        public boolean queueIdle()
+        {
+            mPrefetchScheduled = false;
+
+            int index = mCurrentStep + 1;
+            if (mFinished || index >= mSteps.size() || mPreparedStep == index) {
+                return false;
+            }
+
+            long startNanos = System.nanoTime();
+            Step step = mSteps.get(index);
+            if (!resolveAnchor(step)) {
+                // The anchor is not there yet, so the step is prepared when it is shown instead.
+                return false;
+            }
+
+            if (!mMorphEnabled) {
+                mPreparedToolTipView = mToolTipRelativeLayout.prepareToolTipView(step.mToolTip, step.mAnchor);
+                mPreparedStep = index;
+            }
+            step.mPrepareNanos = System.nanoTime() - startNanos;
+            return false;
+        }
+    }
+
+    /**
+     * Advances the tour when the ToolTipView of its step is clicked, and forgets that ToolTipView once it is removed.
+     * Identifies its step by index, since a click dismisses the ToolTipView before the listener is notified.
+     */
+    private class StepListener implements ToolTipView.OnToolTipViewClickedListener, ToolTipView.OnToolTipViewRemovedListener
+    {
+
+        private final int mStep;
+
+        StepListener(final int step)
+        {
+            mStep = step;
+        }
+
+        @Override
+        public void onToolTipViewClicked(final ToolTipView toolTipView)
+        {
+            if (mStep == mCurrentStep) {
+                next();
+            }
+        }
+
+        @Override
+        public void onToolTipViewRemoved(final ToolTipView toolTipView)
+        {
+            if (toolTipView == mCurrentToolTipView) {
+                mCurrentToolTipView = null;
+            }
+        }
+    }
+}
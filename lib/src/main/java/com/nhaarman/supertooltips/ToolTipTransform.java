@@ -0,0 +1,75 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.view.View;
+
+/**
+ * The animatable state of a {@link ToolTipView}. It only holds properties that are applied on the render thread -
+ * translation, scale and alpha - so animating them never requests a layout.
+ */
+public final class ToolTipTransform
+{
+
+    public float translationX;
+    public float translationY;
+    public float scaleX = 1;
+    public float scaleY = 1;
+    public float alpha = 1;
+
+    public void set(final float translationX, final float translationY, final float scaleX, final float scaleY, final float alpha)
+    {
+        this.translationX = translationX;
+        this.translationY = translationY;
+        this.scaleX = scaleX;
+        this.scaleY = scaleY;
+        this.alpha = alpha;
+    }
+
+    public void set(final ToolTipTransform other)
+    {
+        set(other.translationX, other.translationY, other.scaleX, other.scaleY, other.alpha);
+    }
+
+    /**
+     * Sets this transform to the current state of given View.
+     */
+    void readFrom(final View view)
+    {
+        set(view.getTranslationX(), view.getTranslationY(), view.getScaleX(), view.getScaleY(), view.getAlpha());
+    }
+
+    void applyTo(final View view)
+    {
+        view.setTranslationX(translationX);
+        view.setTranslationY(translationY);
+        view.setScaleX(scaleX);
+        view.setScaleY(scaleY);
+        view.setAlpha(alpha);
+    }
+
+    /**
+     * Sets this transform to the linear interpolation between given transforms.
+     */
+    void interpolate(final ToolTipTransform from, final ToolTipTransform to, final float fraction)
+    {
+        translationX = from.translationX + (to.translationX - from.translationX) * fraction;
+        translationY = from.translationY + (to.translationY - from.translationY) * fraction;
+        scaleX = from.scaleX + (to.scaleX - from.scaleX) * fraction;
+        scaleY = from.scaleY + (to.scaleY - from.scaleY) * fraction;
+        alpha = from.alpha + (to.alpha - from.alpha) * fraction;
+    }
+}
@@ -17,77 +17,399 @@ package com.nhaarman.supertooltips;
 
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
-import android.annotation.SuppressLint;
+import android.animation.ValueAnimator;
+import android.annotation.TargetApi;
 import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Rect;
-import android.graphics.drawable.GradientDrawable;
+import android.graphics.Typeface;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.view.Display;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewManager;
+import android.view.ViewParent;
 import android.view.ViewTreeObserver;
+import android.view.WindowManager;
 import android.widget.LinearLayout;
-import android.widget.RelativeLayout;
 import android.widget.TextView;
 
-import java.util.ArrayList;
-import java.util.Collection;
-
 /**
  * A ViewGroup to visualize ToolTips. Use
  * ToolTipRelativeLayout.showToolTipForView() to show ToolTips.
  */
-public class ToolTipView extends LinearLayout implements ViewTreeObserver.OnPreDrawListener, View.OnClickListener
+public class ToolTipView extends LinearLayout implements ViewTreeObserver.OnPreDrawListener, View.OnClickListener, View.OnLayoutChangeListener
 {
 
-    public static final String TRANSLATION_Y_COMPAT = "translationY";
-    public static final String TRANSLATION_X_COMPAT = "translationX";
-    public static final String SCALE_X_COMPAT = "scaleX";
-    public static final String SCALE_Y_COMPAT = "scaleY";
-    public static final String ALPHA_COMPAT = "alpha";
+    private static final int STATE_HIDDEN = 0;
+    private static final int STATE_APPEARING = 1;
+    private static final int STATE_SHOWN = 2;
+    private static final int STATE_DISAPPEARING = 3;
 
+    private ViewGroup mFrame;
     private UpTriangleShapeView mTopPointerView;
     // private View mTopFrame;
     private RoundedBackgroundView mContentHolder;
     private TextView mToolTipTV;
+    private PreparedTextView mPreparedTextView;
     // private View mBottomFrame;
     private DownTriangleShapeView mBottomPointerView;
-    private View mShadowView;
+    private FlatToolTipRenderer mFlatRenderer;
 
     private ToolTip mToolTip;
-    private View mView;
+    private Anchor mAnchor;
 
     private boolean mDimensionsKnown;
     private int mRelativeMasterViewY;
 
     private int mRelativeMasterViewX;
     private int mWidth;
+    private int mPlacementWidthMeasureSpec;
+    private int mPlacementHeightMeasureSpec;
+    private boolean mMeasuredForHost;
+    private int mHostWidthMeasureSpec;
+    private int mHostHeightMeasureSpec;
+    private int mMasterViewWidth;
+    private int mMasterViewHeight;
+
+    private ToolTipMetrics mMetrics;
+    private long mShowStartNanos;
+    private int mLayoutPassCount;
+
+    private boolean mAnchorTrackingEnabled;
+    private boolean mFollowAnchorEnabled;
+    private boolean mPositionDirty;
+    private boolean mAnchorViewObserved;
+    private final AnchorAttachStateListener mAnchorAttachStateListener = new AnchorAttachStateListener();
+    private Handler mMainHandler;
+
+    private final Rect mAnchorScreenBounds = new Rect();
+    private final int[] mParentScreenPosition = new int[2];
+    private final Rect mDisplayFrame = new Rect();
+    private final Rect mAnchorBounds = new Rect();
+
+    private final ToolTipAnimator mToolTipAnimator = new ToolTipAnimator(this);
+    private final AnimationMetricsListener mAnimationMetricsListener = new AnimationMetricsListener();
+    private int mState = STATE_HIDDEN;
+    private boolean mMoving;
+    private boolean mMovingPointer;
+    private int mMoveFromPointerLeft;
+    private int mMoveToPointerLeft;
+    private boolean mHostHardwareAccelerated;
+
+    private boolean mSnapshotEnabled = true;
+    private boolean mSnapshotting;
+    private boolean mSnapshotValid;
+    private Bitmap mSnapshot;
+    private final Canvas mSnapshotCanvas = new Canvas();
 
     private OnToolTipViewClickedListener mListener;
+    private OnToolTipViewRemovedListener mRemovedListener;
+    private boolean mDismissOnClick = true;
+
+    private int mDefaultContentPaddingLeft;
+    private int mDefaultContentPaddingTop;
+    private int mDefaultContentPaddingRight;
+    private int mDefaultContentPaddingBottom;
+    private ColorStateList mDefaultTextColors;
+    private Typeface mDefaultTypeface;
 
     public ToolTipView(final Context context)
+    {
+        this(context, ToolTipRelativeLayout.RENDER_MODE_VIEWS);
+    }
+
+    /**
+     * @param renderMode
+     *            either {@link ToolTipRelativeLayout#RENDER_MODE_VIEWS} or {@link ToolTipRelativeLayout#RENDER_MODE_FLAT}.
+     *            A ToolTipView in flat render mode ignores {@link ToolTip#withContentView(View)}.
+     */
+    public ToolTipView(final Context context, final int renderMode)
     {
         super(context);
-        init();
+        init(renderMode);
     }
 
-    private void init()
+    private void init(final int renderMode)
     {
         setLayoutParams(new LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
         setOrientation(VERTICAL);
+        setOnClickListener(this);
+
+        // The metrics listener needs to see the state before StateAnimatorListener updates it.
+        mToolTipAnimator.addListener(mAnimationMetricsListener);
+        mToolTipAnimator.addUpdateListener(mAnimationMetricsListener);
+        mToolTipAnimator.addListener(new StateAnimatorListener());
+        mToolTipAnimator.addUpdateListener(new MovePointerUpdateListener());
+
+        if (renderMode == ToolTipRelativeLayout.RENDER_MODE_FLAT) {
+            mFlatRenderer = new FlatToolTipRenderer(getContext());
+            return;
+        }
+
         LayoutInflater.from(getContext()).inflate(R.layout.tooltip, this, true);
 
         mTopPointerView = (UpTriangleShapeView) findViewById(R.id.tooltip_pointer_up);
         mContentHolder = (RoundedBackgroundView) findViewById(R.id.tooltip_contentholder);
         mToolTipTV = (TextView) findViewById(R.id.tooltip_contenttv);
         mBottomPointerView = (DownTriangleShapeView) findViewById(R.id.tooltip_pointer_down);
-        mShadowView = findViewById(R.id.tooltip_shadow);
+        mFrame = (ViewGroup) mContentHolder.getParent();
+
+        mDefaultContentPaddingLeft = mContentHolder.getPaddingLeft();
+        mDefaultContentPaddingTop = mContentHolder.getPaddingTop();
+        mDefaultContentPaddingRight = mContentHolder.getPaddingRight();
+        mDefaultContentPaddingBottom = mContentHolder.getPaddingBottom();
+        mDefaultTextColors = mToolTipTV.getTextColors();
+        mDefaultTypeface = mToolTipTV.getTypeface();
+    }
 
-        setOnClickListener(this);
-        getViewTreeObserver().addOnPreDrawListener(this);
+    /**
+     * @return either {@link ToolTipRelativeLayout#RENDER_MODE_VIEWS} or {@link ToolTipRelativeLayout#RENDER_MODE_FLAT}.
+     */
+    public int getRenderMode()
+    {
+        return mFlatRenderer != null ? ToolTipRelativeLayout.RENDER_MODE_FLAT : ToolTipRelativeLayout.RENDER_MODE_VIEWS;
+    }
+
+    /**
+     * Restores this ToolTipView to the state it was in right after inflation, so it can be reused for another
+     * ToolTip. Must only be called while this ToolTipView has no parent.
+     */
+    void reset()
+    {
+        mToolTipAnimator.cancel();
+        if (mMainHandler != null) {
+            mMainHandler.removeCallbacks(mAnchorAttachStateListener);
+        }
+        mState = STATE_HIDDEN;
+        mSnapshotEnabled = true;
+        stopSnapshot();
+        setAnchorTrackingEnabled(false);
+        mFollowAnchorEnabled = false;
+        mPositionDirty = false;
+        mMetrics = null;
+        mShowStartNanos = 0;
+        mLayoutPassCount = 0;
+        mToolTip = null;
+        mAnchor = null;
+        mListener = null;
+        mRemovedListener = null;
+        mDismissOnClick = true;
+        mDimensionsKnown = false;
+        mMeasuredForHost = false;
+        mWidth = 0;
+        mRelativeMasterViewX = 0;
+        mRelativeMasterViewY = 0;
+        mMasterViewWidth = 0;
+        mMasterViewHeight = 0;
+
+        setTranslationX(0);
+        setTranslationY(0);
+        setScaleX(1);
+        setScaleY(1);
+        setAlpha(1);
+
+        if (mFlatRenderer != null) {
+            mFlatRenderer.reset();
+            requestLayout();
+            return;
+        }
+
+        resetStyle();
+        mFrame.setPadding(0, 0, 0, 0);
+    }
+
+    /**
+     * Restores the content and style to the state right after inflation, so a ToolTip only needs to apply the
+     * values it sets.
+     */
+    private void resetStyle()
+    {
+        if (mToolTipTV.getParent() != mContentHolder) {
+            setContentView(mToolTipTV);
+        }
+        mToolTipTV.setText(null);
+        if (mPreparedTextView != null) {
+            mPreparedTextView.setPreparedText(null);
+        }
+        mToolTipTV.setTextColor(mDefaultTextColors);
+        mToolTipTV.setTypeface(mDefaultTypeface);
+
+        mContentHolder.setBackground(null);
+        mContentHolder.setColor(0);
+        mContentHolder.setBorderColor(0);
+        mContentHolder.setBorderWidth(0);
+        mContentHolder.setRadius(-1);
+        mContentHolder.setShowBorder(false);
+        mContentHolder.setShadow(0, 0);
+        mContentHolder.setPadding(mDefaultContentPaddingLeft, mDefaultContentPaddingTop, mDefaultContentPaddingRight, mDefaultContentPaddingBottom);
+
+        mTopPointerView.setColor(0);
+        mTopPointerView.setBorderColor(0);
+        mTopPointerView.setBorderWidth(0);
+        mTopPointerView.setShowBorder(false);
+        mTopPointerView.setTipArcSize(0);
+        mBottomPointerView.setColor(0);
+        mBottomPointerView.setBorderColor(0);
+        mBottomPointerView.setBorderWidth(0);
+        mBottomPointerView.setShowBorder(false);
+        mBottomPointerView.setTipArcSize(0);
+    }
+
+    @Override
+    protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec)
+    {
+        if (mFlatRenderer == null) {
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+            return;
+        }
+
+        mFlatRenderer.measure(widthMeasureSpec, heightMeasureSpec);
+        setMeasuredDimension(mFlatRenderer.getMeasuredWidth(), mFlatRenderer.getMeasuredHeight());
+    }
+
+    @Override
+    protected void onLayout(final boolean changed, final int l, final int t, final int r, final int b)
+    {
+        super.onLayout(changed, l, t, r, b);
+        mSnapshotValid = false;
+        // A ToolTipRelativeLayout reports its own passes, including those that do not reach this method.
+        if (mMetrics != null && !(getParent() instanceof ToolTipRelativeLayout)) {
+            mLayoutPassCount++;
+        }
+    }
+
+    /**
+     * Called by the ToolTipRelativeLayout holding this ToolTipView for each of its layout passes that reaches this
+     * ToolTipView.
+     */
+    void onHostLayoutPass()
+    {
+        if (mMetrics != null && mShowStartNanos != 0) {
+            mLayoutPassCount++;
+        }
+    }
+
+    @Override
+    protected void dispatchDraw(final Canvas canvas)
+    {
+        if (mSnapshotting && getWidth() > 0 && getHeight() > 0) {
+            if (!mSnapshotValid) {
+                updateSnapshot();
+            }
+            canvas.drawBitmap(mSnapshot, 0, 0, null);
+        }
+        else {
+            drawContent(canvas);
+        }
+
+        if (mMetrics != null && mShowStartNanos != 0) {
+            mMetrics.onToolTipFirstDraw(this, System.nanoTime() - mShowStartNanos, mLayoutPassCount);
+            mShowStartNanos = 0;
+        }
+    }
+
+    private void drawContent(final Canvas canvas)
+    {
+        if (mFlatRenderer != null) {
+            mFlatRenderer.draw(canvas);
+        }
+        else {
+            super.dispatchDraw(canvas);
+        }
+    }
+
+    @Override
+    public ViewParent invalidateChildInParent(final int[] location, final Rect dirty)
+    {
+        // A child changed, so the snapshot no longer shows the current content.
+        mSnapshotValid = false;
+        return super.invalidateChildInParent(location, dirty);
+    }
+
+    /**
+     * Set whether this ToolTipView animates a bitmap snapshot of its content, instead of redrawing its content
+     * every frame. Only used in windows that are not hardware accelerated; hardware accelerated windows use a
+     * hardware layer instead. The snapshot is rendered again when the content changes. Enabled by default.
+     */
+    public void setSnapshotEnabled(final boolean enabled)
+    {
+        mSnapshotEnabled = enabled;
+        if (!enabled) {
+            stopSnapshot();
+        }
+    }
+
+    public boolean isSnapshotEnabled()
+    {
+        return mSnapshotEnabled;
+    }
+
+    /**
+     * Chooses between a snapshot and a hardware layer for the animation that is about to start.
+     */
+    private void prepareAnimation(final boolean hardwareAccelerated)
+    {
+        if (mToolTipAnimator.isRunning()) {
+            return;
+        }
+
+        mSnapshotting = mSnapshotEnabled && !hardwareAccelerated;
+        mSnapshotValid = false;
+        mToolTipAnimator.setHardwareLayerEnabled(!mSnapshotting);
+    }
+
+    private void updateSnapshot()
+    {
+        if (mSnapshot == null || mSnapshot.getWidth() < getWidth() || mSnapshot.getHeight() < getHeight()) {
+            if (mSnapshot != null) {
+                ToolTipBitmapPool.release(mSnapshot);
+            }
+            mSnapshot = ToolTipBitmapPool.acquire(getWidth(), getHeight());
+        }
+        else {
+            mSnapshot.eraseColor(Color.TRANSPARENT);
+        }
+
+        mSnapshotCanvas.setBitmap(mSnapshot);
+        drawContent(mSnapshotCanvas);
+        mSnapshotCanvas.setBitmap(null);
+        mSnapshotValid = true;
+    }
+
+    private void stopSnapshot()
+    {
+        mSnapshotting = false;
+        mSnapshotValid = false;
+        if (mSnapshot != null) {
+            ToolTipBitmapPool.release(mSnapshot);
+            mSnapshot = null;
+        }
+    }
+
+    private void invalidateSnapshot()
+    {
+        if (mSnapshotting) {
+            mSnapshotValid = false;
+            invalidate();
+        }
+    }
+
+    /**
+     * Set the ToolTipMetrics to report to, and the moment this ToolTipView was requested to be shown.
+     */
+    void setMetrics(final ToolTipMetrics metrics, final long showStartNanos)
+    {
+        mMetrics = metrics;
+        mShowStartNanos = showStartNanos;
+        mLayoutPassCount = 0;
     }
 
     @Override
@@ -96,11 +418,8 @@ public class ToolTipView extends LinearLayout implements ViewTreeObserver.OnPreD
         getViewTreeObserver().removeOnPreDrawListener(this);
         mDimensionsKnown = true;
 
-        mWidth = mContentHolder.getWidth();
+        mWidth = mFlatRenderer != null ? mFlatRenderer.getBubbleWidth() : mContentHolder.getWidth();
 
-        RelativeLayout.LayoutParams layoutParams = (RelativeLayout.LayoutParams) getLayoutParams();
-        layoutParams.width = mWidth;
-        setLayoutParams(layoutParams);
         if (getParent() == null) {
             return false;
         }
@@ -111,11 +430,140 @@ public class ToolTipView extends LinearLayout implements ViewTreeObserver.OnPreD
     }
 
     public void setToolTip(final ToolTip toolTip, final View view)
+    {
+        setToolTip(toolTip, Anchor.ofView(view));
+    }
+
+    /**
+     * Shows given ToolTip pointing at given Anchor, which does not need to be a View.
+     */
+    public void setToolTip(final ToolTip toolTip, final Anchor anchor)
+    {
+        setAnchor(anchor);
+        bindToolTip(toolTip);
+
+        if (mDimensionsKnown && getParent() instanceof ViewGroup) {
+            // Already shown: position once, against the size of the new content.
+            ViewGroup host = (ViewGroup) getParent();
+            measureForHost(host);
+            applyToolTipPosition(true, host);
+            mPlacementWidthMeasureSpec = 0;
+            mPlacementHeightMeasureSpec = 0;
+        }
+    }
+
+    public void moveTo(final ToolTip toolTip, final View view)
+    {
+        moveTo(toolTip, Anchor.ofView(view));
+    }
+
+    /**
+     * Moves this ToolTipView to given Anchor and shows given ToolTip there, in a single transition that animates
+     * its position, size and pointer. The ToolTipView is reused, and its content is only bound and measured again
+     * if it changed. The content is known to be unchanged for built ToolTips with the same text and
+     * {@link ToolTipStyle}. If this ToolTipView is not shown, this is the same as {@link #setToolTip(ToolTip, Anchor)}.
+     */
+    public void moveTo(final ToolTip toolTip, final Anchor anchor)
+    {
+        if (!(getParent() instanceof ViewGroup) || !mDimensionsKnown || mState == STATE_HIDDEN || mState == STATE_DISAPPEARING) {
+            setToolTip(toolTip, anchor);
+            return;
+        }
+
+        // Stops a running move or appearance where it is, which is where the transition starts.
+        mToolTipAnimator.cancel();
+        ToolTipTransform from = mToolTipAnimator.getHidden();
+        from.readFrom(this);
+        int fromWidth = getWidth();
+        int fromHeight = getHeight();
+        boolean fromPointerBelow = isPointerBelow();
+        int fromPointerLeft = getPointerLeft();
+
+        ViewGroup host = (ViewGroup) getParent();
+        boolean contentChanged = !hasSameContent(toolTip);
+        setAnchor(anchor);
+        mState = STATE_SHOWN;
+        if (contentChanged) {
+            bindToolTip(toolTip);
+            measureForHost(host);
+        }
+        else {
+            mToolTip = toolTip;
+        }
+        applyToolTipPosition(false, host);
+        mPlacementWidthMeasureSpec = 0;
+        mPlacementHeightMeasureSpec = 0;
+
+        if (mToolTip.getAnimation() == ToolTip.AnimationType.NONE) {
+            return;
+        }
+
+        // Start from the current bounds: scaling is around the center, so keep the center where it is.
+        int toWidth = getMeasuredWidth();
+        int toHeight = getMeasuredHeight();
+        float scaleX = toWidth > 0 ? fromWidth * from.scaleX / toWidth : 1;
+        float scaleY = toHeight > 0 ? fromHeight * from.scaleY / toHeight : 1;
+        mToolTipAnimator.getShown().set(getTranslationX(), getTranslationY(), 1, 1, 1);
+        from.set(from.translationX + (fromWidth - toWidth) / 2f, from.translationY + (fromHeight - toHeight) / 2f, scaleX, scaleY, from.alpha);
+
+        mMoveFromPointerLeft = fromPointerLeft;
+        mMoveToPointerLeft = getPointerLeft();
+        mMovingPointer = fromPointerBelow == isPointerBelow() && fromPointerLeft != mMoveToPointerLeft;
+        mMoving = true;
+
+        prepareAnimation(mHostHardwareAccelerated);
+        if (mMovingPointer) {
+            // The content changes on every frame, so neither a snapshot nor a layer can be reused.
+            mSnapshotting = false;
+            mToolTipAnimator.setHardwareLayerEnabled(false);
+            setPointerLeft(fromPointerLeft);
+        }
+        mState = STATE_APPEARING;
+        mToolTipAnimator.show(mToolTip.getAnimationDuration());
+    }
+
+    /**
+     * @return true if given ToolTip is known to look the same as the current one.
+     */
+    private boolean hasSameContent(final ToolTip toolTip)
+    {
+        ToolTipStyle style = toolTip.getStyle();
+        return style != null && style == mToolTip.getStyle()
+                && toolTip.getTextResId() == mToolTip.getTextResId()
+                && TextUtils.equals(toolTip.getText(), mToolTip.getText());
+    }
+
+    private void setAnchor(final Anchor anchor)
+    {
+        boolean anchorViewObserved = mAnchorViewObserved;
+        setAnchorViewObserved(false);
+        mAnchor = anchor;
+        setAnchorViewObserved(anchorViewObserved);
+    }
+
+    /**
+     * Applies the content and style of given ToolTip, without positioning this ToolTipView.
+     */
+    private void bindToolTip(final ToolTip toolTip)
     {
         mToolTip = toolTip;
-        mView = view;
+        mMeasuredForHost = false;
+        invalidateSnapshot();
+
+        if (mFlatRenderer != null) {
+            mFlatRenderer.setToolTip(mToolTip);
+            requestLayout();
+            invalidate();
+            return;
+        }
+
+        // The previous ToolTip may have set values the new one leaves at their defaults.
+        resetStyle();
 
-        if (mToolTip.getText() != null) {
+        if (mToolTip.getPreparedText() != null) {
+            setPreparedText(mToolTip.getPreparedText());
+        }
+        else if (mToolTip.getText() != null) {
             mToolTipTV.setText(mToolTip.getText());
         }
         else if (mToolTip.getTextResId() != 0) {
@@ -148,10 +596,6 @@ public class ToolTipView extends LinearLayout implements ViewTreeObserver.OnPreD
 
         if (mToolTip.getBorderRadius() != 0) {
             setBorderRadius(mToolTip.getBorderRadius());
-            if (mShadowView.getBackground() instanceof GradientDrawable) {
-                GradientDrawable shapeDrawable = (GradientDrawable) mShadowView.getBackground();
-                ((GradientDrawable) shapeDrawable.mutate()).setCornerRadius(mToolTip.getBorderRadius());
-            }
         }
 
         if (mToolTip.getTipArcSize() > 0) {
@@ -159,11 +603,9 @@ public class ToolTipView extends LinearLayout implements ViewTreeObserver.OnPreD
             mTopPointerView.setTipArcSize(mToolTip.getTipArcSize());
         }
 
-        if (mToolTip.getShadowColor() != 0) {
-            if (mShadowView.getBackground() instanceof GradientDrawable) {
-                GradientDrawable shapeDrawable = (GradientDrawable) mShadowView.getBackground();
-                ((GradientDrawable) (shapeDrawable.mutate())).setColor(mToolTip.getShadowColor());
-            }
+        if (mToolTip.shouldShowShadow()) {
+            int shadowSize = mToolTip.getShadowSize() > 0 ? mToolTip.getShadowSize() : (int) (2 * getResources().getDisplayMetrics().density);
+            mContentHolder.setShadow(shadowSize, mToolTip.getShadowColor());
         }
 
         if (mToolTip.getContentView() != null) {
@@ -184,30 +626,19 @@ public class ToolTipView extends LinearLayout implements ViewTreeObserver.OnPreD
         }
 
         mContentHolder.setPadding(leftPadding, topPadding, rightPadding, bottomPadding);
+    }
 
-        if (mDimensionsKnown) {
-            applyToolTipPosition(true);
-        }
-
-        if (!mToolTip.shouldShowShadow()) {
-            mShadowView.setVisibility(View.GONE);
+    /**
+     * Shows given text in place of the TextView, without measuring it again.
+     */
+    private void setPreparedText(final PreparedText preparedText)
+    {
+        if (mPreparedTextView == null) {
+            mPreparedTextView = new PreparedTextView(getContext());
         }
-        else {
-            getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener()
-            {
-                @Override
-                public void onGlobalLayout()
-                {
-                    int shadowSize = mToolTip.getShadowSize() > 0 ? mToolTip.getShadowSize() : (int) (2 * getResources().getDisplayMetrics().density);
-                    int height = mContentHolder.getHeight();
-
-                    MarginLayoutParams marginLayoutParams = (MarginLayoutParams) mShadowView.getLayoutParams();
-                    marginLayoutParams.topMargin = (int) (-height + shadowSize);
-                    ViewGroup.LayoutParams layoutParams = mShadowView.getLayoutParams();
-                    layoutParams.height = height;
-                    getViewTreeObserver().removeOnGlobalLayoutListener(this);
-                }
-            });
+        mPreparedTextView.setPreparedText(preparedText);
+        if (mPreparedTextView.getParent() != mContentHolder) {
+            setContentView(mPreparedTextView);
         }
     }
 
@@ -218,30 +649,306 @@ public class ToolTipView extends LinearLayout implements ViewTreeObserver.OnPreD
         mBottomPointerView.setShowBorder(true);
     }
 
+    /**
+     * Moves this ToolTipView to its anchor View. To update several ToolTipViews at once, prefer
+     * {@link ToolTipRelativeLayout#requestToolTipReposition()}, which does this once per frame for all of them.
+     */
     public void applyToolTipPosition(boolean animate)
     {
-        final int[] masterViewScreenPosition = new int[2];
-        mView.getLocationOnScreen(masterViewScreenPosition);
+        if (getParent() == null) {
+            // You have no parent, why. Ok
+            return;
+        }
+        applyToolTipPosition(animate, (View) getParent());
+    }
+
+    private void applyToolTipPosition(final boolean animate, final View parent)
+    {
+        mHostHardwareAccelerated = parent.isHardwareAccelerated();
+        parent.getLocationOnScreen(mParentScreenPosition);
+        Rect displayFrame;
+        if (parent instanceof ToolTipRelativeLayout) {
+            displayFrame = ((ToolTipRelativeLayout) parent).getDisplayFrame();
+        }
+        else {
+            parent.getWindowVisibleDisplayFrame(mDisplayFrame);
+            displayFrame = mDisplayFrame;
+        }
+        applyToolTipPosition(animate, mParentScreenPosition[0], mParentScreenPosition[1], displayFrame);
+    }
+
+    /**
+     * Set whether this ToolTipView follows its anchor View when the anchor is scrolled or laid out again, for
+     * example inside a ScrollView or ListView. Repositioning happens at most once per frame, and only changes the
+     * translation of this ToolTipView. Disabled by default.
+     *
+     * @see ToolTipRelativeLayout#setAnchorTrackingEnabled(boolean)
+     */
+    public void setAnchorTrackingEnabled(final boolean enabled)
+    {
+        if (mAnchorTrackingEnabled == enabled) {
+            return;
+        }
 
-        final Rect viewDisplayFrame = new Rect();
-        mView.getWindowVisibleDisplayFrame(viewDisplayFrame);
+        mAnchorTrackingEnabled = enabled;
 
-        final int[] parentViewScreenPosition = new int[2];
+        View anchorView = mAnchor != null ? mAnchor.getView() : null;
+        if (mAnchorViewObserved && anchorView != null) {
+            if (enabled) {
+                anchorView.addOnLayoutChangeListener(this);
+            }
+            else {
+                anchorView.removeOnLayoutChangeListener(this);
+            }
+        }
+    }
 
-        if (getParent() == null) {
-            // You have no parent, why. Ok
+    /**
+     * Starts or stops observing the View of the Anchor, if it has one: whether it is detached, and its layout
+     * changes if anchor tracking is enabled. Anchor Views are only observed while this ToolTipView is attached, so
+     * they never keep a dismissed ToolTipView alive.
+     */
+    private void setAnchorViewObserved(final boolean observed)
+    {
+        if (mAnchorViewObserved == observed) {
+            return;
+        }
+        mAnchorViewObserved = observed;
+
+        View anchorView = mAnchor != null ? mAnchor.getView() : null;
+        if (anchorView == null) {
+            return;
+        }
+
+        if (observed) {
+            anchorView.addOnAttachStateChangeListener(mAnchorAttachStateListener);
+            if (mAnchorTrackingEnabled) {
+                anchorView.addOnLayoutChangeListener(this);
+            }
+        }
+        else {
+            anchorView.removeOnAttachStateChangeListener(mAnchorAttachStateListener);
+            anchorView.removeOnLayoutChangeListener(this);
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow()
+    {
+        super.onAttachedToWindow();
+        if (!mDimensionsKnown) {
+            getViewTreeObserver().addOnPreDrawListener(this);
+        }
+        setAnchorViewObserved(true);
+    }
+
+    @Override
+    protected void onDetachedFromWindow()
+    {
+        getViewTreeObserver().removeOnPreDrawListener(this);
+        setAnchorViewObserved(false);
+        if (mState != STATE_HIDDEN) {
+            // Removed along with its window, not by remove(): stop the animation so it does not hold on to us.
+            mToolTipAnimator.cancel();
+        }
+        super.onDetachedFromWindow();
+    }
+
+    public boolean isAnchorTrackingEnabled()
+    {
+        return mAnchorTrackingEnabled;
+    }
+
+    /**
+     * Set whether this ToolTipView follows its anchor View while the anchor is animated, for example with an
+     * ObjectAnimator on its translation. The anchor is polled once per frame while it moves, and polling stops by
+     * itself a few frames after the anchor came to rest. Disabled by default.
+     */
+    public void setFollowAnchorEnabled(final boolean enabled)
+    {
+        mFollowAnchorEnabled = enabled;
+        if (enabled && getParent() instanceof ToolTipRelativeLayout) {
+            ((ToolTipRelativeLayout) getParent()).startFollowingAnchors();
+        }
+    }
+
+    public boolean isFollowAnchorEnabled()
+    {
+        return mFollowAnchorEnabled;
+    }
+
+    @Override
+    public void onLayoutChange(final View v, final int left, final int top, final int right, final int bottom,
+                               final int oldLeft, final int oldTop, final int oldRight, final int oldBottom)
+    {
+        if (getParent() instanceof ToolTipRelativeLayout) {
+            mPositionDirty = true;
+            ((ToolTipRelativeLayout) getParent()).requestDirtyToolTipReposition();
+        }
+    }
+
+    void setPositionDirty()
+    {
+        mPositionDirty = true;
+    }
+
+    boolean isPositionDirty()
+    {
+        return mPositionDirty;
+    }
+
+    /**
+     * Moves this ToolTipView without animation, but only if its anchor View moved or was resized since the last
+     * time the position was applied.
+     *
+     * @param parentScreenX
+     *            the x coordinate of the parent on screen.
+     * @param parentScreenY
+     *            the y coordinate of the parent on screen.
+     * @param displayFrame
+     *            the visible display frame of the window.
+     *
+     * @return true if this ToolTipView was moved.
+     */
+    boolean applyToolTipPositionIfAnchorMoved(final int parentScreenX, final int parentScreenY, final Rect displayFrame)
+    {
+        mPositionDirty = false;
+        if (mToolTip == null || !mDimensionsKnown) {
+            return false;
+        }
+
+        if (!mAnchor.getScreenBounds(mAnchorScreenBounds)) {
+            return false;
+        }
+        if (mAnchorScreenBounds.left - parentScreenX == mRelativeMasterViewX
+                && mAnchorScreenBounds.top - parentScreenY == mRelativeMasterViewY
+                && mAnchorScreenBounds.width() == mMasterViewWidth
+                && mAnchorScreenBounds.height() == mMasterViewHeight) {
+            return false;
+        }
+
+        applyToolTipPosition(false, parentScreenX, parentScreenY, displayFrame);
+        return true;
+    }
+
+    /**
+     * Measures this ToolTipView against the size of given host and applies its final position, before it is
+     * attached. This way the first frame that is drawn already shows the ToolTipView at the right location, and no
+     * additional layout pass is needed once the dimensions are known.
+     *
+     * @return false if the host or the anchor View have not been laid out yet, in which case the position is
+     *         applied once this ToolTipView is about to be drawn.
+     */
+    boolean placeBeforeAttach(final ViewGroup host)
+    {
+        if (mToolTip == null || host.getWidth() == 0 || !mAnchor.getScreenBounds(mAnchorScreenBounds)
+                || mAnchorScreenBounds.width() == 0 && mAnchorScreenBounds.height() == 0) {
+            return false;
+        }
+
+        measureForHost(host);
+        getViewTreeObserver().removeOnPreDrawListener(this);
+        mDimensionsKnown = true;
+
+        applyToolTipPosition(true, host);
+
+        mPlacementWidthMeasureSpec = 0;
+        mPlacementHeightMeasureSpec = 0;
+        return true;
+    }
+
+    /**
+     * Measures this ToolTipView against the size of given host, as its next layout pass will. The measure specs are
+     * kept until the position is applied, so it can measure again if the pointer side changes.
+     */
+    private void measureForHost(final ViewGroup host)
+    {
+        mPlacementWidthMeasureSpec = MeasureSpec.makeMeasureSpec(host.getWidth() - host.getPaddingLeft() - host.getPaddingRight(), MeasureSpec.AT_MOST);
+        mPlacementHeightMeasureSpec = MeasureSpec.makeMeasureSpec(host.getHeight() - host.getPaddingTop() - host.getPaddingBottom(), MeasureSpec.AT_MOST);
+        // A ToolTipView that was measured ahead of time, and did not change since, keeps that measurement.
+        if (!hasMeasuredForHost(mPlacementWidthMeasureSpec, mPlacementHeightMeasureSpec)) {
+            measureWithPlacementSpecs();
+        }
+        mWidth = mFlatRenderer != null ? mFlatRenderer.getBubbleWidth() : mContentHolder.getMeasuredWidth();
+    }
+
+    private void measureWithPlacementSpecs()
+    {
+        measure(mPlacementWidthMeasureSpec, mPlacementHeightMeasureSpec);
+        mHostWidthMeasureSpec = mPlacementWidthMeasureSpec;
+        mHostHeightMeasureSpec = mPlacementHeightMeasureSpec;
+        mMeasuredForHost = true;
+    }
+
+    /**
+     * @return the width the text of given ToolTip gets when this ToolTipView is measured against given width: that
+     *         width minus the horizontal padding that applies around the text once the ToolTip is bound. Does not
+     *         depend on the current ToolTip, so it can be called on a background thread before binding.
+     */
+    int getMaxTextWidth(final ToolTip toolTip, final int availableWidth)
+    {
+        int horizontalPadding;
+        if (mFlatRenderer != null) {
+            horizontalPadding = 2 * Math.max(0, toolTip.getHorizontalPadding());
+        }
+        else {
+            // bindToolTip gives the content holder the padding of this view, unless the ToolTip sets one.
+            int contentPadding = toolTip.getHorizontalPadding() >= 0 ? 2 * toolTip.getHorizontalPadding() : getPaddingLeft() + getPaddingRight();
+            horizontalPadding = getPaddingLeft() + getPaddingRight() + contentPadding;
+        }
+        return Math.max(0, availableWidth - horizontalPadding);
+    }
+
+    /**
+     * Measures this ToolTipView against the size of given host ahead of time, so showing it in that host later
+     * does not need to measure it again.
+     */
+    void premeasureForHost(final ViewGroup host)
+    {
+        measureForHost(host);
+        mPlacementWidthMeasureSpec = 0;
+        mPlacementHeightMeasureSpec = 0;
+    }
+
+    /**
+     * @return true if this ToolTipView was measured with given measure specs, and nothing changed its size since.
+     */
+    boolean hasMeasuredForHost(final int widthMeasureSpec, final int heightMeasureSpec)
+    {
+        return mMeasuredForHost && widthMeasureSpec == mHostWidthMeasureSpec && heightMeasureSpec == mHostHeightMeasureSpec;
+    }
+
+    @Override
+    public void requestLayout()
+    {
+        mMeasuredForHost = false;
+        super.requestLayout();
+    }
+
+    @Override
+    public void forceLayout()
+    {
+        mMeasuredForHost = false;
+        super.forceLayout();
+    }
+
+    private void applyToolTipPosition(final boolean animate, final int parentScreenX, final int parentScreenY, final Rect viewDisplayFrame)
+    {
+        if (!mAnchor.getScreenBounds(mAnchorScreenBounds)) {
             return;
         }
-        ((View) getParent()).getLocationOnScreen(parentViewScreenPosition);
 
-        final int masterViewWidth = mView.getWidth();
-        final int masterViewHeight = mView.getHeight();
+        final int masterViewWidth = mAnchorScreenBounds.width();
+        final int masterViewHeight = mAnchorScreenBounds.height();
+        mMasterViewWidth = masterViewWidth;
+        mMasterViewHeight = masterViewHeight;
 
-        mRelativeMasterViewX = masterViewScreenPosition[0] - parentViewScreenPosition[0];
-        mRelativeMasterViewY = masterViewScreenPosition[1] - parentViewScreenPosition[1];
+        mRelativeMasterViewX = mAnchorScreenBounds.left - parentScreenX;
+        mRelativeMasterViewY = mAnchorScreenBounds.top - parentScreenY;
         final int relativeMasterViewCenterX = mRelativeMasterViewX + masterViewWidth / 2;
 
-        int toolTipViewAboveY = mRelativeMasterViewY - (getHeight() / 2);
+        int toolTipHeight = getToolTipHeight();
+        int toolTipViewAboveY = mRelativeMasterViewY - (toolTipHeight / 2);
         int toolTipViewBelowY = Math.max(0, mRelativeMasterViewY + masterViewHeight / 2);
 
         int toolTipViewX = Math.max(0, relativeMasterViewCenterX - mWidth / 2) + mToolTip.getXOffSet();
@@ -264,8 +971,27 @@ public class ToolTipView extends LinearLayout implements ViewTreeObserver.OnPreD
             showBelow = (toolTipViewAboveY - mToolTip.getYOffset()) < 0;
         }
 
-        mTopPointerView.setVisibility(showBelow ? VISIBLE : GONE);
-        mBottomPointerView.setVisibility(showBelow ? GONE : VISIBLE);
+        boolean heightChanged;
+        if (mFlatRenderer != null) {
+            heightChanged = mFlatRenderer.setShowBelow(showBelow);
+            if (heightChanged) {
+                requestLayout();
+            }
+            invalidate();
+        }
+        else {
+            heightChanged = (mTopPointerView.getVisibility() == VISIBLE) != showBelow || (mBottomPointerView.getVisibility() == VISIBLE) == showBelow;
+            mTopPointerView.setVisibility(showBelow ? VISIBLE : GONE);
+            mBottomPointerView.setVisibility(showBelow ? GONE : VISIBLE);
+            heightChanged |= updateShadowSpace(showBelow);
+        }
+
+        if (heightChanged && mPlacementWidthMeasureSpec != 0) {
+            // Not attached yet: measure again so the position below uses the height of the final pointer side.
+            measureWithPlacementSpecs();
+            toolTipHeight = getMeasuredHeight();
+            toolTipViewAboveY = mRelativeMasterViewY - (toolTipHeight / 2);
+        }
 
         int toolTipViewY;
         if (showBelow) {
@@ -277,43 +1003,94 @@ public class ToolTipView extends LinearLayout implements ViewTreeObserver.OnPreD
 
         toolTipViewY += mToolTip.getYOffset();
 
-        if (mToolTip.getAnimationType() == ToolTip.AnimationType.NONE || !animate) {
+        ToolTipAnimation animation = mToolTip.getAnimation();
+        if (animation == ToolTip.AnimationType.NONE || mState == STATE_SHOWN || mState == STATE_HIDDEN && !animate) {
+            mToolTipAnimator.cancel();
             setTranslationY(toolTipViewY);
             setTranslationX(toolTipViewX);
+            mState = STATE_SHOWN;
+            return;
         }
-        else {
-            Collection<Animator> animators = new ArrayList<>(5);
 
-            if (mToolTip.getAnimationType() == ToolTip.AnimationType.FROM_MASTER_VIEW) {
-                float i = mRelativeMasterViewY + (float) mView.getHeight() / 2 - (float) getHeight() / 2;
-                animators.add(ObjectAnimator.ofFloat(this, View.TRANSLATION_Y, i, (float) toolTipViewY));
-                animators.add(ObjectAnimator.ofFloat(this, View.TRANSLATION_X, mRelativeMasterViewX + mView.getWidth() / 2 - mWidth / 2, toolTipViewX));
-            }
-            else if (mToolTip.getAnimationType() == ToolTip.AnimationType.FROM_TOP) {
-                animators.add(ObjectAnimator.ofFloat(this, View.TRANSLATION_Y, 0, (float) toolTipViewY));
-            }
+        // Retarget a running animation instead of starting another one.
+        ToolTipTransform shown = mToolTipAnimator.getShown();
+        shown.set(toolTipViewX, toolTipViewY, 1, 1, 1);
+        mAnchorBounds.set(mRelativeMasterViewX, mRelativeMasterViewY, mRelativeMasterViewX + masterViewWidth, mRelativeMasterViewY + masterViewHeight);
+        if (!mMoving) {
+            animation.getHiddenTransform(shown, mAnchorBounds, mWidth, toolTipHeight, mToolTipAnimator.getHidden());
+        }
 
-            animators.add(ObjectAnimator.ofFloat(this, View.SCALE_X, 0f, 1f));
-            animators.add(ObjectAnimator.ofFloat(this, View.SCALE_Y, 0f, 1f));
+        if (mState == STATE_HIDDEN || mState == STATE_DISAPPEARING && animate) {
+            prepareAnimation(mHostHardwareAccelerated);
+            mState = STATE_APPEARING;
+            mToolTipAnimator.show(mToolTip.getAnimationDuration());
+        }
+    }
 
-            animators.add(ObjectAnimator.ofFloat(this, View.ALPHA, 0, 1));
+    /**
+     * Makes room below the content for its shadow, as far as the pointer below the content does not already.
+     *
+     * @return true if the room changed, and a new layout is needed.
+     */
+    private boolean updateShadowSpace(final boolean showBelow)
+    {
+        int spaceBelowContent = 0;
+        if (!showBelow) {
+            MarginLayoutParams pointerLayoutParams = (MarginLayoutParams) mBottomPointerView.getLayoutParams();
+            spaceBelowContent = pointerLayoutParams.height + pointerLayoutParams.topMargin;
+        }
 
-            AnimatorSet animatorSet = new AnimatorSet();
-            if (mToolTip.getAnimationDuration() > 0) {
-                animatorSet.setDuration(mToolTip.getAnimationDuration());
-            }
-            animatorSet.playTogether(animators);
+        int paddingBottom = Math.max(0, mContentHolder.getShadowSize() - spaceBelowContent);
+        if (mFrame.getPaddingBottom() == paddingBottom) {
+            return false;
+        }
 
-            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
-                animatorSet.addListener(new AppearanceAnimatorListener(toolTipViewX, toolTipViewY));
-            }
+        mFrame.setPadding(0, 0, 0, paddingBottom);
+        return true;
+    }
 
-            animatorSet.start();
+    /**
+     * @return the height of this ToolTipView, or its measured height if it has not been laid out yet.
+     */
+    private int getToolTipHeight()
+    {
+        return getHeight() > 0 && mPlacementWidthMeasureSpec == 0 ? getHeight() : getMeasuredHeight();
+    }
+
+    private boolean isPointerBelow()
+    {
+        return mFlatRenderer != null ? !mFlatRenderer.isShowBelow() : mBottomPointerView.getVisibility() == VISIBLE;
+    }
+
+    /**
+     * @return the left of the pointer, relative to this ToolTipView.
+     */
+    private int getPointerLeft()
+    {
+        return mFlatRenderer != null ? mFlatRenderer.getPointerLeft() : (int) mTopPointerView.getX();
+    }
+
+    private void setPointerLeft(final int pointerLeft)
+    {
+        if (mFlatRenderer != null) {
+            mFlatRenderer.setPointerLeft(pointerLeft);
+            invalidate();
+            return;
         }
+
+        mTopPointerView.setX(pointerLeft);
+        mBottomPointerView.setX(pointerLeft);
     }
 
     public void setPointerCenterX(final int pointerCenterX)
     {
+        if (mFlatRenderer != null) {
+            mFlatRenderer.setPointerLeft(pointerCenterX - mFlatRenderer.getPointerWidth() / 2 - (int) getX());
+            invalidateSnapshot();
+            invalidate();
+            return;
+        }
+
         int pointerWidth = Math.max(mTopPointerView.getMeasuredWidth(), mBottomPointerView.getMeasuredWidth());
 
         mTopPointerView.setX(pointerCenterX - pointerWidth / 2 - (int) getX());
@@ -325,8 +1102,31 @@ public class ToolTipView extends LinearLayout implements ViewTreeObserver.OnPreD
         mListener = listener;
     }
 
+    /**
+     * Set the listener that is notified once when this ToolTipView is removed from its parent.
+     */
+    void setOnToolTipViewRemovedListener(final OnToolTipViewRemovedListener listener)
+    {
+        mRemovedListener = listener;
+    }
+
+    /**
+     * Set whether clicking this ToolTipView dismisses it, before the listener is notified. Enabled by default.
+     */
+    void setDismissOnClick(final boolean dismissOnClick)
+    {
+        mDismissOnClick = dismissOnClick;
+    }
+
     public void setColor(final int color)
     {
+        if (mFlatRenderer != null) {
+            mFlatRenderer.setColor(color);
+            invalidateSnapshot();
+            invalidate();
+            return;
+        }
+
         mTopPointerView.setColor(color);
         mBottomPointerView.setColor(color);
         mContentHolder.setBackgroundColor(0x0000000000);
@@ -335,6 +1135,13 @@ public class ToolTipView extends LinearLayout implements ViewTreeObserver.OnPreD
 
     public void setBorderColor(final int color)
     {
+        if (mFlatRenderer != null) {
+            mFlatRenderer.setBorderColor(color);
+            invalidateSnapshot();
+            invalidate();
+            return;
+        }
+
         mTopPointerView.setBorderColor(color);
         mBottomPointerView.setBorderColor(color);
         mContentHolder.setBorderColor(color);
@@ -346,124 +1153,97 @@ public class ToolTipView extends LinearLayout implements ViewTreeObserver.OnPreD
         mContentHolder.addView(view);
     }
 
+    /**
+     * Dismisses this ToolTipView. Once removed, the ToolTipView may be reused by its {@link ToolTipRelativeLayout}
+     * for another ToolTip, so do not keep a reference to it afterwards.
+     */
     public void remove()
     {
-        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
-            RelativeLayout.LayoutParams params = (RelativeLayout.LayoutParams) getLayoutParams();
-            setX(params.leftMargin);
-            setY(params.topMargin);
-            params.leftMargin = 0;
-            params.topMargin = 0;
-            setLayoutParams(params);
+        if (mToolTip == null) {
+            return;
         }
 
-        if (mToolTip.getAnimationType() == ToolTip.AnimationType.NONE) {
-            if (getParent() != null) {
-                ((ViewManager) getParent()).removeView(this);
-            }
+        if (mState == STATE_DISAPPEARING) {
+            return;
         }
-        else {
-            Collection<Animator> animators = new ArrayList<>(5);
-            if (mToolTip.getAnimationType() == ToolTip.AnimationType.FROM_MASTER_VIEW) {
-                animators.add(ObjectAnimator.ofInt(this, TRANSLATION_Y_COMPAT, (int) getY(), mRelativeMasterViewY + mView.getHeight() / 2 - getHeight() / 2));
-                animators.add(ObjectAnimator.ofInt(this, TRANSLATION_X_COMPAT, (int) getX(), mRelativeMasterViewX + mView.getWidth() / 2 - mWidth / 2));
-            }
-            else {
-                animators.add(ObjectAnimator.ofFloat(this, TRANSLATION_Y_COMPAT, getY(), 0));
-            }
-
-            animators.add(ObjectAnimator.ofFloat(this, SCALE_X_COMPAT, 1, 0));
-            animators.add(ObjectAnimator.ofFloat(this, SCALE_Y_COMPAT, 1, 0));
-
-            animators.add(ObjectAnimator.ofFloat(this, ALPHA_COMPAT, 1, 0));
-
-            AnimatorSet animatorSet = new AnimatorSet();
 
-            if (mToolTip.getAnimationDuration() > 0) {
-                animatorSet.setDuration(mToolTip.getAnimationDuration());
-            }
-            animatorSet.playTogether(animators);
-            animatorSet.addListener(new DisappearanceAnimatorListener());
-            animatorSet.start();
+        ToolTipAnimation animation = mToolTip.getAnimation();
+        if (animation == ToolTip.AnimationType.NONE || mState == STATE_HIDDEN) {
+            mToolTipAnimator.cancel();
+            removeFromParent();
+            return;
         }
-    }
 
-    @Override
-    public void onClick(final View view)
-    {
-        remove();
+        if (mMoving) {
+            // Hide from where the move got to, instead of reversing back to the previous anchor.
+            mToolTipAnimator.cancel();
+            mState = STATE_SHOWN;
+        }
 
-        if (mListener != null) {
-            mListener.onToolTipViewClicked(this);
+        if (mState == STATE_SHOWN) {
+            ToolTipTransform shown = mToolTipAnimator.getShown();
+            shown.readFrom(this);
+            mAnchorBounds.set(mRelativeMasterViewX, mRelativeMasterViewY, mRelativeMasterViewX + mMasterViewWidth, mRelativeMasterViewY + mMasterViewHeight);
+            animation.getHiddenTransform(shown, mAnchorBounds, mWidth, getHeight(), mToolTipAnimator.getHidden());
         }
+
+        // While appearing, this reverses the running animation from its current fraction.
+        prepareAnimation(isHardwareAccelerated());
+        mState = STATE_DISAPPEARING;
+        mToolTipAnimator.hide(mToolTip.getAnimationDuration());
     }
 
     /**
-     * Convenience method for getting X.
+     * Dismisses this ToolTipView right away, without animation.
      */
-    @SuppressLint("NewApi")
-    @Override
-    public float getX()
+    void removeImmediately()
     {
-        float result;
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
-            result = super.getX();
-        }
-        else {
-            result = getX();
-        }
-        return result;
+        mToolTipAnimator.cancel();
+        removeFromParent();
     }
 
-    /**
-     * Convenience method for setting X.
-     */
-    @SuppressLint("NewApi")
-    @Override
-    public void setX(final float x)
+    private void removeFromParent()
     {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
-            super.setX(x);
-        }
-        else {
-            setX(x);
+        ViewParent parent = getParent();
+        if (parent == null) {
+            return;
         }
-    }
 
-    /**
-     * Convenience method for getting Y.
-     */
-    @SuppressLint("NewApi")
-    @Override
-    public float getY()
-    {
-        float result;
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
-            result = super.getY();
+        mState = STATE_HIDDEN;
+        ((ViewManager) parent).removeView(this);
+        OnToolTipViewRemovedListener removedListener = mRemovedListener;
+        mRemovedListener = null;
+        if (removedListener != null) {
+            removedListener.onToolTipViewRemoved(this);
         }
-        else {
-            result = getY();
+        if (parent instanceof ToolTipRelativeLayout) {
+            ((ToolTipRelativeLayout) parent).onToolTipViewRemoved(this);
         }
-        return result;
     }
 
-    /**
-     * Convenience method for setting Y.
-     */
-    @SuppressLint("NewApi")
     @Override
-    public void setY(final float y)
+    public void onClick(final View view)
     {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
-            super.setY(y);
+        // remove() may recycle this view right away, which clears the listener.
+        OnToolTipViewClickedListener listener = mListener;
+        if (mDismissOnClick) {
+            remove();
         }
-        else {
-            setY(y);
+
+        if (listener != null) {
+            listener.onToolTipViewClicked(this);
         }
     }
 
     public void setBorderWidth(int borderWidth)
     {
+        if (mFlatRenderer != null) {
+            mFlatRenderer.setBorderWidth(borderWidth);
+            invalidateSnapshot();
+            invalidate();
+            return;
+        }
+
         mContentHolder.setBorderWidth(borderWidth);
         mTopPointerView.setBorderWidth(borderWidth);
         mBottomPointerView.setBorderWidth(borderWidth);
@@ -471,6 +1251,13 @@ public class ToolTipView extends LinearLayout implements ViewTreeObserver.OnPreD
 
     public void setBorderRadius(int borderRadius)
     {
+        if (mFlatRenderer != null) {
+            mFlatRenderer.setRadius(borderRadius);
+            invalidateSnapshot();
+            invalidate();
+            return;
+        }
+
         mContentHolder.setRadius(borderRadius);
     }
 
@@ -479,65 +1266,184 @@ public class ToolTipView extends LinearLayout implements ViewTreeObserver.OnPreD
         void onToolTipViewClicked(ToolTipView toolTipView);
     }
 
-    private class AppearanceAnimatorListener extends AnimatorListenerAdapter
+    interface OnToolTipViewRemovedListener
+    {
+        void onToolTipViewRemoved(ToolTipView toolTipView);
+    }
+
+    /**
+     * Measures the duration of an animation and counts the frames that were skipped while it ran. Only reports when
+     * a ToolTipMetrics is set.
+     */
+    private class AnimationMetricsListener extends AnimatorListenerAdapter implements ValueAnimator.AnimatorUpdateListener
     {
 
-        private final float mToolTipViewX;
-        private final float mToolTipViewY;
+        private static final long DEFAULT_FRAME_INTERVAL_NANOS = 16666667;
 
-        AppearanceAnimatorListener(final float fToolTipViewX, final float fToolTipViewY)
+        private long mFrameIntervalNanos = DEFAULT_FRAME_INTERVAL_NANOS;
+        private long mStartNanos;
+        private long mLastFrameNanos;
+        private int mDroppedFrames;
+
+        @Override
+        public void onAnimationStart(final Animator animation)
         {
-            mToolTipViewX = fToolTipViewX;
-            mToolTipViewY = fToolTipViewY;
+            if (mMetrics == null) {
+                return;
+            }
+
+            mFrameIntervalNanos = getFrameIntervalNanos();
+            mStartNanos = System.nanoTime();
+            mLastFrameNanos = mStartNanos;
+            mDroppedFrames = 0;
         }
 
         @Override
-        public void onAnimationStart(final Animator animation)
+        public void onAnimationUpdate(final ValueAnimator animation)
         {
+            if (mStartNanos == 0) {
+                return;
+            }
+
+            long now = System.nanoTime();
+            long skipped = (now - mLastFrameNanos + mFrameIntervalNanos / 2) / mFrameIntervalNanos - 1;
+            if (skipped > 0) {
+                mDroppedFrames += skipped;
+            }
+            mLastFrameNanos = now;
         }
 
         @Override
-        @SuppressLint("NewApi")
         public void onAnimationEnd(final Animator animation)
         {
-            RelativeLayout.LayoutParams params = (RelativeLayout.LayoutParams) getLayoutParams();
-            params.leftMargin = (int) mToolTipViewX;
-            params.topMargin = (int) mToolTipViewY;
-            setX(0);
-            setY(0);
-            setLayoutParams(params);
+            if (mStartNanos == 0 || mMetrics == null) {
+                mStartNanos = 0;
+                return;
+            }
+
+            long duration = System.nanoTime() - mStartNanos;
+            mStartNanos = 0;
+            // A reversed animation is reported by the direction it ended in.
+            if (mState == STATE_APPEARING) {
+                mMetrics.onAppearanceAnimationEnd(ToolTipView.this, duration, mDroppedFrames);
+            }
+            else {
+                mMetrics.onDisappearanceAnimationEnd(ToolTipView.this, duration, mDroppedFrames);
+            }
+        }
+
+        /**
+         * @return the time between two frames of the display this ToolTipView is shown on.
+         */
+        private long getFrameIntervalNanos()
+        {
+            Display display = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1 ? getViewDisplay() : null;
+            if (display == null) {
+                display = ((WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE)).getDefaultDisplay();
+            }
+
+            float refreshRate = display.getRefreshRate();
+            return refreshRate > 0 ? (long) (1000000000 / refreshRate) : DEFAULT_FRAME_INTERVAL_NANOS;
+        }
+
+        @TargetApi(17)
+        private Display getViewDisplay()
+        {
+            return getDisplay();
+        }
+    }
+
+    private Handler getMainHandler()
+    {
+        if (mMainHandler == null) {
+            mMainHandler = new Handler(Looper.getMainLooper());
+        }
+        return mMainHandler;
+    }
+
+    /**
+     * Dismisses this ToolTipView once its anchor View is detached, as there is nothing left to point at. The
+     * anchor may be detached as part of a detach dispatch that also covers this ToolTipView or its parent, so it is
+     * dismissed once that dispatch is over, and only if the anchor was not attached again meanwhile.
+     */
+    private class AnchorAttachStateListener implements View.OnAttachStateChangeListener, Runnable
+    {
+
+        @Override
+        public void onViewAttachedToWindow(final View view)
+        {
+            getMainHandler().removeCallbacks(this);
         }
 
         @Override
-        public void onAnimationCancel(final Animator animation)
+        public void onViewDetachedFromWindow(final View view)
         {
+            getMainHandler().post(this);
         }
 
         @Override
-        public void onAnimationRepeat(final Animator animation)
+        public void run()
         {
+            View anchorView = mAnchor != null ? mAnchor.getView() : null;
+            if (anchorView == null || anchorView.getWindowToken() == null) {
+                removeImmediately();
+            }
         }
     }
 
-    private class DisappearanceAnimatorListener extends AnimatorListenerAdapter
+    /**
+     * Slides the pointer from its previous to its new location while this ToolTipView moves to another anchor.
+     */
+    private class MovePointerUpdateListener implements ValueAnimator.AnimatorUpdateListener
     {
 
+        @Override
+        public void onAnimationUpdate(final ValueAnimator animation)
+        {
+            if (mMoving && mMovingPointer) {
+                float fraction = animation.getAnimatedFraction();
+                setPointerLeft(Math.round(mMoveFromPointerLeft + (mMoveToPointerLeft - mMoveFromPointerLeft) * fraction));
+            }
+        }
+    }
+
+    /**
+     * Moves the state to shown or hidden once an animation completes, and removes this ToolTipView once hidden.
+     */
+    private class StateAnimatorListener extends AnimatorListenerAdapter
+    {
+
+        private boolean mCancelled;
+
         @Override
         public void onAnimationStart(final Animator animation)
         {
+            mCancelled = false;
         }
 
         @Override
         public void onAnimationEnd(final Animator animation)
         {
-            if (getParent() != null) {
-                ((ViewManager) getParent()).removeView(ToolTipView.this);
+            if (mCancelled) {
+                return;
+            }
+
+            mMoving = false;
+            stopSnapshot();
+            if (mState == STATE_APPEARING) {
+                mState = STATE_SHOWN;
+            }
+            else if (mState == STATE_DISAPPEARING) {
+                removeFromParent();
             }
         }
 
         @Override
         public void onAnimationCancel(final Animator animation)
         {
+            mCancelled = true;
+            mMoving = false;
+            stopSnapshot();
         }
 
         @Override
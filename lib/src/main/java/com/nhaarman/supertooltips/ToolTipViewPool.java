@@ -0,0 +1,232 @@
+/*
+ * Copyright 2013 Niek Haarman
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
+
+import java.util.ArrayDeque;
+
+/**
+ * A bounded pool of dismissed {@link ToolTipView}s. Reusing a ToolTipView saves
+ * inflating the tooltip layout for every ToolTip that is shown.
+ * Each {@link ToolTipRelativeLayout} owns one pool. Pooling is off by default: call {@link #setMaxSize(int)} to
+ * enable it. A pooled ToolTipView is handed out again for other ToolTips, so once pooling is enabled callers must
+ * drop their references to a ToolTipView as soon as it is dismissed. The pool must only be used from the main thread.
+ */
+public class ToolTipViewPool
+{
+
+    public static final int DEFAULT_MAX_SIZE = 0;
+
+    private final Context mContext;
+    private final ArrayDeque<ToolTipView> mToolTipViews = new ArrayDeque<>();
+
+    private int mMaxSize = DEFAULT_MAX_SIZE;
+    private int mRenderMode = ToolTipRelativeLayout.RENDER_MODE_VIEWS;
+
+    private int mHitCount;
+    private int mMissCount;
+    private int mEvictionCount;
+
+    private int mPrewarmCount;
+    private PrewarmIdleHandler mPrewarmIdleHandler;
+
+    public ToolTipViewPool(final Context context)
+    {
+        mContext = context;
+    }
+
+    /**
+     * Returns a pooled ToolTipView if one is available, or a newly inflated one otherwise.
+     */
+    public ToolTipView acquire()
+    {
+        ToolTipView toolTipView = mToolTipViews.pollFirst();
+        if (toolTipView != null) {
+            mHitCount++;
+            return toolTipView;
+        }
+
+        mMissCount++;
+        return new ToolTipView(mContext, mRenderMode);
+    }
+
+    /**
+     * Returns a pooled ToolTipView, or null if none is available. Does not inflate a new one.
+     */
+    ToolTipView poll()
+    {
+        ToolTipView toolTipView = mToolTipViews.pollFirst();
+        if (toolTipView != null) {
+            mHitCount++;
+        }
+        return toolTipView;
+    }
+
+    /**
+     * Counts a ToolTipView that had to be inflated outside of {@link #acquire()}, because none was pooled.
+     */
+    void recordMiss()
+    {
+        mMissCount++;
+    }
+
+    int getRenderMode()
+    {
+        return mRenderMode;
+    }
+
+    /**
+     * Resets given ToolTipView and keeps it for reuse. If the pool is full, the ToolTipView is dropped.
+     *
+     * @param toolTipView
+     *            a ToolTipView that is no longer attached to a parent.
+     */
+    public void release(final ToolTipView toolTipView)
+    {
+        if (toolTipView.getParent() != null || toolTipView.getRenderMode() != mRenderMode || mToolTipViews.contains(toolTipView)) {
+            return;
+        }
+
+        if (mToolTipViews.size() >= mMaxSize) {
+            // With pooling off, dropping the ToolTipView is not an eviction.
+            if (mMaxSize > 0) {
+                mEvictionCount++;
+            }
+            return;
+        }
+
+        toolTipView.reset();
+        mToolTipViews.offerFirst(toolTipView);
+    }
+
+    /**
+     * Inflates ToolTipViews until the pool holds given amount of views, or is full. Views are inflated one at a
+     * time whenever the main thread's message queue is idle, so this does not compete with drawing. Does nothing
+     * while pooling is disabled.
+     *
+     * @param count
+     *            the amount of ToolTipViews the pool should hold.
+     */
+    public void prewarm(final int count)
+    {
+        mPrewarmCount = Math.min(count, mMaxSize);
+        if (mToolTipViews.size() >= mPrewarmCount || mPrewarmIdleHandler != null) {
+            return;
+        }
+
+        mPrewarmIdleHandler = new PrewarmIdleHandler();
+        Looper.myQueue().addIdleHandler(mPrewarmIdleHandler);
+    }
+
+    /**
+     * Set the maximum amount of ToolTipViews to keep. Use 0 to disable pooling. Defaults to {@link #DEFAULT_MAX_SIZE},
+     * which disables pooling.
+     */
+    public void setMaxSize(final int maxSize)
+    {
+        mMaxSize = Math.max(0, maxSize);
+        while (mToolTipViews.size() > mMaxSize) {
+            mToolTipViews.pollLast();
+            mEvictionCount++;
+        }
+    }
+
+    public int getMaxSize()
+    {
+        return mMaxSize;
+    }
+
+    /**
+     * Set the render mode of the ToolTipViews this pool holds. Pooled views of another render mode are dropped.
+     */
+    void setRenderMode(final int renderMode)
+    {
+        if (mRenderMode != renderMode) {
+            mRenderMode = renderMode;
+            mToolTipViews.clear();
+        }
+    }
+
+    /**
+     * Drops all pooled ToolTipViews, and stops any pending prewarming.
+     */
+    public void clear()
+    {
+        mToolTipViews.clear();
+        cancelPrewarm();
+    }
+
+    /**
+     * Stops any pending prewarming, so the main thread's message queue no longer refers to this pool.
+     */
+    void cancelPrewarm()
+    {
+        if (mPrewarmIdleHandler != null) {
+            Looper.myQueue().removeIdleHandler(mPrewarmIdleHandler);
+            mPrewarmIdleHandler = null;
+        }
+    }
+
+    public int size()
+    {
+        return mToolTipViews.size();
+    }
+
+    /**
+     * @return the amount of times {@link #acquire()} returned a pooled ToolTipView.
+     */
+    public int getHitCount()
+    {
+        return mHitCount;
+    }
+
+    /**
+     * @return the amount of times {@link #acquire()} had to inflate a new ToolTipView.
+     */
+    public int getMissCount()
+    {
+        return mMissCount;
+    }
+
+    /**
+     * @return the amount of ToolTipViews that were dropped because the pool was full. Stays 0 while pooling is off.
+     */
+    public int getEvictionCount()
+    {
+        return mEvictionCount;
+    }
+
+    private class PrewarmIdleHandler implements MessageQueue.IdleHandler
+    {
+
+        @Override
+        public boolean queueIdle()
+        {
+            if (mToolTipViews.size() < mPrewarmCount) {
+                mToolTipViews.offerLast(new ToolTipView(mContext, mRenderMode));
+            }
+
+            boolean keepRunning = mToolTipViews.size() < mPrewarmCount;
+            if (!keepRunning) {
+                mPrewarmIdleHandler = null;
+            }
+            return keepRunning;
+        }
+    }
+}